@@ -1,20 +1,72 @@
 package bearmaps;
 
 import java.util.ArrayList;
-import java.util.TreeMap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.lang.IllegalArgumentException;
 
 public class ArrayHeapMinPQ<T> implements ExtrinsicMinPQ<T> {
     private ArrayList<PriorityNode> heap;
-    private TreeMap<T, PriorityNode> items;
+    private HashMap<T, PriorityNode> items;
     private int size;
+    private final boolean hotPath;
 
     public ArrayHeapMinPQ() {
+        this(false);
+    }
+
+    /** Creates an empty PQ. If HOTPATH is true, sifting is done with
+      * iterative loops that move a hole rather than swapping at every level,
+      * and internal calls skip key validation. */
+    public ArrayHeapMinPQ(boolean hotPath) {
         heap = new ArrayList<PriorityNode>();
         size = 0;
+        this.hotPath = hotPath;
+
+        items = new HashMap<T, PriorityNode>();
+    }
+
+    /** Creates a PQ holding ITEMS with the parallel PRIORITIES in O(n)
+      * expected time: each item goes into the hash index in O(1), and the
+      * heap is ordered bottom-up rather than by repeated swims. */
+    public ArrayHeapMinPQ(T[] items, double[] priorities) {
+        this(false);
+        addAll(items, priorities);
+    }
 
-        items = new TreeMap<T, PriorityNode>();
+    /** Adds ITEMS with the parallel PRIORITIES. When the batch is at least as
+      * large as the PQ, the whole heap is reordered bottom-up in O(n);
+      * otherwise each new item is swum into place. Indexing the items costs
+      * O(1) expected each either way. Throws an
+      * IllegalArgumentException, leaving the PQ unchanged, if the arrays
+      * differ in length or any item is already present. */
+    public void addAll(T[] items, double[] priorities) {
+        if (items.length != priorities.length) {
+            throw new IllegalArgumentException("Got " + items.length + " items but "
+                    + priorities.length + " priorities.");
+        }
+        appendAll(Arrays.asList(items), priorities);
+    }
+
+    /** Adds ITEMS with the parallel PRIORITIES. See addAll(T[], double[]).
+      * Also throws an IllegalArgumentException, leaving the PQ unchanged, if
+      * any priority is null. */
+    public void addAll(List<T> items, List<Double> priorities) {
+        if (items.size() != priorities.size()) {
+            throw new IllegalArgumentException("Got " + items.size() + " items but "
+                    + priorities.size() + " priorities.");
+        }
+        double[] priorityArray = new double[priorities.size()];
+        for (int i = 0; i < priorityArray.length; i++) {
+            Double priority = priorities.get(i);
+            if (priority == null) {
+                throw new IllegalArgumentException("Priority " + i + " is null.");
+            }
+            priorityArray[i] = priority;
+        }
+        appendAll(items, priorityArray);
     }
 
     /** Adds a new item to the PQ with associated priority. */
@@ -45,6 +97,16 @@ public class ArrayHeapMinPQ<T> implements ExtrinsicMinPQ<T> {
         return root().getItem();
     }
 
+    /* Returns the priority of the minimum item. Throws NoSuchElementException if the PQ
+     * is empty. */
+    @Override
+    public double getSmallestPriority() {
+        if (heap.isEmpty()) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        return root().getPriority();
+    }
+
     /* Removes and returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
     @Override
     public T removeSmallest() {
@@ -106,6 +168,49 @@ public class ArrayHeapMinPQ<T> implements ExtrinsicMinPQ<T> {
 
     /** HELPER METHODS  */
 
+    /** Restores heap order after the nodes from OLDSIZE onwards were
+      * appended without sifting. */
+    private void restoreHeap(int oldSize) {
+        int added = size - oldSize;
+        if (added >= oldSize) {
+            for (int key = size / 2 - 1; key >= 0; key--) {
+                sink(heap.get(key));
+            }
+        } else {
+            for (int key = oldSize; key < size; key++) {
+                swim(heap.get(key));
+            }
+        }
+    }
+
+    /** Appends ITEMS, whose count matches PRIORITIES, then restores heap
+      * order. Undoes the appends and throws an IllegalArgumentException if
+      * any item is already present. */
+    private void appendAll(List<T> newItems, double[] priorities) {
+        int oldSize = size;
+        heap.ensureCapacity(size + priorities.length);
+        int i = 0;
+        for (T item : newItems) {
+            if (contains(item)) {
+                undoAddAll(oldSize);
+                throw new IllegalArgumentException("Item already present.");
+            }
+            PriorityNode node = new PriorityNode(item, priorities[i], size);
+            heap.add(node);
+            items.put(item, node);
+            size++;
+            i++;
+        }
+        restoreHeap(oldSize);
+    }
+
+    /** Removes the nodes appended by a failed addAll. */
+    private void undoAddAll(int oldSize) {
+        while (size > oldSize) {
+            removeLast();
+        }
+    }
+
     /** Returns the root node. */
     private PriorityNode root() {
         return heap.get(0);
@@ -197,7 +302,30 @@ public class ArrayHeapMinPQ<T> implements ExtrinsicMinPQ<T> {
 
     /** Lifts a node up to the appropriate position based on priority. */
     private void swim(PriorityNode node) {
-        swim(node.getKey());
+        if (hotPath) {
+            siftUp(node);
+        } else {
+            swim(node.getKey());
+        }
+    }
+
+    /** Iterative, unchecked swim. Parents are moved down into the hole left
+      * by NODE until NODE's position is found. */
+    private void siftUp(PriorityNode node) {
+        int key = node.key;
+        double priority = node.priority;
+        while (key > 0) {
+            int p = (key - 1) / 2;
+            PriorityNode parentNode = heap.get(p);
+            if (priority >= parentNode.priority) {
+                break;
+            }
+            heap.set(key, parentNode);
+            parentNode.key = key;
+            key = p;
+        }
+        heap.set(key, node);
+        node.key = key;
     }
 
     private void sink(int key) {
@@ -224,7 +352,36 @@ public class ArrayHeapMinPQ<T> implements ExtrinsicMinPQ<T> {
 
     /** Drops a node down to the appropriate position based on priority. */
     private void sink(PriorityNode node) {
-        sink(node.getKey());
+        if (hotPath) {
+            siftDown(node);
+        } else {
+            sink(node.getKey());
+        }
+    }
+
+    /** Iterative, unchecked sink. The smaller child is moved up into the
+      * hole left by NODE until NODE's position is found. */
+    private void siftDown(PriorityNode node) {
+        int key = node.key;
+        double priority = node.priority;
+        int half = size / 2;
+        while (key < half) {
+            int child = 2 * key + 1;
+            PriorityNode childNode = heap.get(child);
+            int r = child + 1;
+            if (r < size && heap.get(r).priority <= childNode.priority) {
+                child = r;
+                childNode = heap.get(r);
+            }
+            if (priority <= childNode.priority) {
+                break;
+            }
+            heap.set(key, childNode);
+            childNode.key = key;
+            key = child;
+        }
+        heap.set(key, node);
+        node.key = key;
     }
 
     private class PriorityNode implements Comparable<PriorityNode> {
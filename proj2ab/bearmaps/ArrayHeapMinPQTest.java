@@ -1,7 +1,9 @@
 package bearmaps;
 
+import java.util.Arrays;
 import java.util.Random;
 import java.util.Iterator;
+import java.util.List;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -108,6 +110,103 @@ public class ArrayHeapMinPQTest {
 
     }
 
+    @Test
+    public void testHotPathMatchesChecked() {
+        ArrayHeapMinPQ<Integer> pq = new ArrayHeapMinPQ<>(true);
+        ArrayHeapMinPQ<Integer> checked = new ArrayHeapMinPQ<>();
+
+        long seed = 956;
+        Random rnd = new Random(seed);
+
+        for (int i = 0; i < 1000; i++) {
+            int priority = rnd.nextInt(100);
+            pq.add(i, priority);
+            checked.add(i, priority);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            int priority = rnd.nextInt(100);
+            pq.changePriority(i, priority);
+            checked.changePriority(i, priority);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(checked.size(), pq.size());
+            assertEquals(checked.removeSmallest(), pq.removeSmallest());
+        }
+    }
+
+    @Test
+    public void testBulkConstructor() {
+        NaiveMinPQ<Integer> nn = new NaiveMinPQ<>();
+
+        long seed = 956;
+        Random rnd = new Random(seed);
+        Integer[] items = new Integer[1000];
+        double[] priorities = new double[1000];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i;
+            priorities[i] = rnd.nextDouble();
+            nn.add(i, priorities[i]);
+        }
+        ArrayHeapMinPQ<Integer> pq = new ArrayHeapMinPQ<>(items, priorities);
+
+        assertEquals(nn.size(), pq.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(nn.getSmallestPriority(), pq.getSmallestPriority(), 0.0);
+            assertEquals(nn.removeSmallest(), pq.removeSmallest());
+        }
+    }
+
+    @Test
+    public void testAddAll() {
+        ArrayHeapMinPQ<String> pq = new ArrayHeapMinPQ<>(true);
+        pq.add("a", 5);
+        pq.add("b", 1);
+        pq.add("c", 3);
+        pq.add("d", 7);
+
+        // smaller than the PQ, so each item is swum into place
+        pq.addAll(List.of("e", "f"), List.of(0.5, 4.0));
+        // larger than the PQ, so the heap is rebuilt
+        pq.addAll(new String[]{"g", "h", "i", "j", "k", "l", "m"},
+                new double[]{9, 2, 8, 6, 0, 10, 11});
+
+        String expected = "kebhcfajdiglm";
+        assertEquals(expected.length(), pq.size());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.substring(i, i + 1), pq.removeSmallest());
+        }
+    }
+
+    @Test
+    public void testAddAllDuplicateLeavesPQUnchanged() {
+        ArrayHeapMinPQ<String> pq = new ArrayHeapMinPQ<>();
+        pq.add("a", 5);
+        try {
+            pq.addAll(new String[]{"b", "c", "b"}, new double[]{1, 2, 3});
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, pq.size());
+            assertFalse(pq.contains("b"));
+            assertEquals("a", pq.getSmallest());
+        }
+    }
+
+    @Test
+    public void testAddAllNullPriorityLeavesPQUnchanged() {
+        ArrayHeapMinPQ<String> pq = new ArrayHeapMinPQ<>();
+        pq.add("a", 5);
+        try {
+            pq.addAll(Arrays.asList("b", "c"), Arrays.asList(1.0, null));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1, pq.size());
+            assertFalse(pq.contains("b"));
+            assertEquals("a", pq.getSmallest());
+        }
+    }
+
     public static void main(String[] args) {
         jh61b.junit.TestRunner.runTests("all", ArrayHeapMinPQTest.class);
     }
@@ -13,6 +13,9 @@ public interface ExtrinsicMinPQ<T> {
     boolean contains(T item);
     /* Returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
     T getSmallest();
+    /* Returns the priority of the minimum item. Throws NoSuchElementException if the PQ
+     * is empty. */
+    double getSmallestPriority();
     /* Removes and returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
     T removeSmallest();
     /* Returns the number of items in the PQ. */
@@ -0,0 +1,147 @@
+package bearmaps;
+
+import java.util.List;
+
+/**
+ * A 2-d tree with no Node objects. The tree is built by median partitioning
+ * and stored implicitly: the subtree over the slice [lo, hi) of the arrays has
+ * its root at mid = (lo + hi) / 2, its left subtree in [lo, mid) and its right
+ * subtree in [mid + 1, hi). Coordinates live in two double[]s in this tree
+ * order, and ids[i] is the index in the original list of the point stored at
+ * i. Points in a left subtree have keys no larger than their root's and points
+ * in a right subtree keys no smaller.
+ */
+public class FlatKDTree implements PointSet {
+    private static final int DIM = 2;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final int[] ids;
+
+    /** Builds a tree over POINTS. The list is not retained. */
+    public FlatKDTree(List<Point> points) {
+        int n = points.size();
+        double[] px = new double[n];
+        double[] py = new double[n];
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            Point p = points.get(i);
+            px[i] = p.getX();
+            py[i] = p.getY();
+            perm[i] = i;
+        }
+        build(px, py, perm, 0, n, 0);
+
+        xs = new double[n];
+        ys = new double[n];
+        ids = perm;
+        for (int i = 0; i < n; i++) {
+            xs[i] = px[perm[i]];
+            ys[i] = py[perm[i]];
+        }
+    }
+
+    /** Returns the number of points in the tree. */
+    public int size() {
+        return ids.length;
+    }
+
+    /** Returns the closest point to the inputted coordinates. The returned
+      * Point is equal to, but not the same object as, the one given to the
+      * constructor. */
+    @Override
+    public Point nearest(double x, double y) {
+        int i = nearestPosition(x, y);
+        return new Point(xs[i], ys[i]);
+    }
+
+    /** Returns the index, in the list given to the constructor, of the
+      * closest point to the inputted coordinates. Allocates nothing. */
+    public int nearestIndex(double x, double y) {
+        return ids[nearestPosition(x, y)];
+    }
+
+    /** Returns the tree position of the closest point to (X, Y). */
+    private int nearestPosition(double x, double y) {
+        if (ids.length == 0) {
+            throw new IllegalStateException("The tree is empty.");
+        }
+        return nearest(0, ids.length, 0, x, y, (ids.length - 1) >>> 1);
+    }
+
+    private int nearest(int lo, int hi, int depth, double x, double y, int best) {
+        if (lo >= hi) {
+            return best;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (distance(mid, x, y) < distance(best, x, y)) {
+            best = mid;
+        }
+        double diff = (depth % DIM == 0) ? x - xs[mid] : y - ys[mid];
+        if (diff < 0) {
+            best = nearest(lo, mid, depth + 1, x, y, best);
+            if (diff * diff < distance(best, x, y)) {
+                best = nearest(mid + 1, hi, depth + 1, x, y, best);
+            }
+        } else {
+            best = nearest(mid + 1, hi, depth + 1, x, y, best);
+            if (diff * diff < distance(best, x, y)) {
+                best = nearest(lo, mid, depth + 1, x, y, best);
+            }
+        }
+        return best;
+    }
+
+    /** Returns the squared Euclidean distance from the point at tree
+      * position I to (X, Y). */
+    private double distance(int i, double x, double y) {
+        double dx = xs[i] - x;
+        double dy = ys[i] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /** Orders perm[lo, hi) into tree order, using coordinates PX and PY. */
+    private static void build(double[] px, double[] py, int[] perm, int lo, int hi, int depth) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double[] keys = (depth % DIM == 0) ? px : py;
+        select(keys, perm, lo, hi - 1, mid);
+        build(px, py, perm, lo, mid, depth + 1);
+        build(px, py, perm, mid + 1, hi, depth + 1);
+    }
+
+    /** Quickselect: places the index of the K-th smallest key among
+      * perm[lo..hi] at perm[k], with no larger keys before it and no smaller
+      * keys after it. */
+    private static void select(double[] keys, int[] perm, int lo, int hi, int k) {
+        while (lo < hi) {
+            double pivot = keys[perm[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[perm[i]] < pivot) {
+                    i++;
+                }
+                while (keys[perm[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = perm[i];
+                    perm[i] = perm[j];
+                    perm[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+}
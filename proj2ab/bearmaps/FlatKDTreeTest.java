@@ -0,0 +1,65 @@
+package bearmaps;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import java.util.ArrayList;
+import java.util.Random;
+
+public class FlatKDTreeTest {
+
+    @Test
+    public void testNearestLectureExample() {
+        ArrayList<Point> points = new ArrayList<>();
+        points.add(new Point(2, 3));
+        points.add(new Point(4, 2));
+        points.add(new Point(4, 5));
+        points.add(new Point(3, 3));
+        points.add(new Point(1, 5));
+        points.add(new Point(4, 4));
+
+        FlatKDTree tree = new FlatKDTree(points);
+
+        assertEquals(6, tree.size());
+        assertEquals(new Point(1, 5), tree.nearest(0, 7));
+        assertEquals(4, tree.nearestIndex(0, 7));
+        assertEquals(new Point(3, 3), tree.nearest(3.1, 2.9));
+        assertEquals(3, tree.nearestIndex(3.1, 2.9));
+    }
+
+    private double getRandomCoord(Random rnd) {
+        double min = -1000.0;
+        double max = 1000.0;
+        return rnd.nextDouble() * (max - min) + min;
+    }
+
+    @Test
+    public void testNearest() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        ArrayList<Point> points = new ArrayList<>();
+        for (int i = 0; i < 1E5; i++) {
+            // round so that many points share coordinates
+            double x = Math.round(getRandomCoord(rnd) / 10) * 10;
+            double y = getRandomCoord(rnd);
+            points.add(new Point(x, y));
+        }
+        FlatKDTree tree = new FlatKDTree(points);
+        NaivePointSet nn = new NaivePointSet(points);
+
+        for (int i = 0; i < 1E3; i++) {
+            Point target = new Point(getRandomCoord(rnd), getRandomCoord(rnd));
+            double expected = Point.distance(target,
+                    nn.nearest(target.getX(), target.getY()));
+            double actual = Point.distance(target,
+                    tree.nearest(target.getX(), target.getY()));
+            assertEquals(expected, actual, 1E-8);
+
+            Point byIndex = points.get(tree.nearestIndex(target.getX(), target.getY()));
+            assertEquals(expected, Point.distance(target, byIndex), 1E-8);
+        }
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", FlatKDTreeTest.class);
+    }
+}
@@ -0,0 +1,193 @@
+package bearmaps;
+
+import java.util.List;
+
+/**
+ * A PointSet that buckets points into a uniform grid over their bounding box.
+ * The grid has about POINTS_PER_CELL points per cell, with cells shaped to
+ * the box. Points are stored cell by cell: the points of cell c occupy
+ * positions [cellStart[c], cellStart[c + 1]) of the coordinate arrays.
+ *
+ * nearest scans the query's cell, then the rings of cells around it, and
+ * stops once no unscanned cell can hold anything closer. For roughly uniform
+ * data it inspects a constant number of points per query.
+ */
+public class GridPointSet implements PointSet {
+    private static final double POINTS_PER_CELL = 2.0;
+
+    private final double minX, minY;
+    private final double cellWidth, cellHeight;
+    private final int cols, rows;
+    private final int[] cellStart;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final Point[] points;
+
+    /** Builds a grid over POINTS. The list is not retained. */
+    public GridPointSet(List<Point> points) {
+        int n = points.size();
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        double lowX = Double.POSITIVE_INFINITY;
+        double lowY = Double.POSITIVE_INFINITY;
+        for (Point p : points) {
+            lowX = Math.min(lowX, p.getX());
+            lowY = Math.min(lowY, p.getY());
+            maxX = Math.max(maxX, p.getX());
+            maxY = Math.max(maxY, p.getY());
+        }
+        double width = maxX - lowX;
+        double height = maxY - lowY;
+
+        // Choose cols / rows close to width / height, with n / POINTS_PER_CELL cells.
+        double cells = Math.max(1, n / POINTS_PER_CELL);
+        if (n == 0 || (width == 0 && height == 0)) {
+            cols = 1;
+            rows = 1;
+        } else if (height == 0) {
+            cols = (int) Math.ceil(cells);
+            rows = 1;
+        } else if (width == 0) {
+            cols = 1;
+            rows = (int) Math.ceil(cells);
+        } else {
+            // Clamped so that a nearly flat box does not get a huge grid.
+            int maxCells = (int) Math.ceil(cells);
+            cols = Math.min(maxCells, Math.max(1, (int) Math.round(Math.sqrt(cells * width / height))));
+            rows = Math.min(maxCells, Math.max(1, (int) Math.ceil(cells / cols)));
+        }
+        minX = n == 0 ? 0 : lowX;
+        minY = n == 0 ? 0 : lowY;
+        cellWidth = width > 0 ? width / cols : 1;
+        cellHeight = height > 0 ? height / rows : 1;
+
+        // Counting sort of the points by cell.
+        int[] cellOf = new int[n];
+        cellStart = new int[cols * rows + 1];
+        for (int i = 0; i < n; i++) {
+            Point p = points.get(i);
+            cellOf[i] = cell(col(p.getX()), row(p.getY()));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] next = new int[cols * rows];
+        System.arraycopy(cellStart, 0, next, 0, next.length);
+
+        xs = new double[n];
+        ys = new double[n];
+        this.points = new Point[n];
+        for (int i = 0; i < n; i++) {
+            Point p = points.get(i);
+            int pos = next[cellOf[i]];
+            next[cellOf[i]]++;
+            xs[pos] = p.getX();
+            ys[pos] = p.getY();
+            this.points[pos] = p;
+        }
+    }
+
+    /** Returns the number of points in the set. */
+    public int size() {
+        return points.length;
+    }
+
+    /** Returns the closest point to the inputted coordinates. */
+    @Override
+    public Point nearest(double x, double y) {
+        if (points.length == 0) {
+            throw new IllegalStateException("The set is empty.");
+        }
+        int qc = col(x);
+        int qr = row(y);
+        int best = -1;
+
+        int maxRing = Math.max(Math.max(qc, cols - 1 - qc), Math.max(qr, rows - 1 - qr));
+        for (int r = 0; r <= maxRing; r++) {
+            int c0 = qc - r;
+            int c1 = qc + r;
+            int r0 = qr - r;
+            int r1 = qr + r;
+            // The top and bottom rows of the ring may both be off the grid.
+            if (r0 >= 0 || r1 < rows) {
+                for (int c = Math.max(c0, 0); c <= Math.min(c1, cols - 1); c++) {
+                    if (r0 >= 0) {
+                        best = scan(cell(c, r0), x, y, best);
+                    }
+                    if (r1 < rows && r > 0) {
+                        best = scan(cell(c, r1), x, y, best);
+                    }
+                }
+            }
+            for (int rr = Math.max(r0 + 1, 0); rr <= Math.min(r1 - 1, rows - 1); rr++) {
+                if (c0 >= 0) {
+                    best = scan(cell(c0, rr), x, y, best);
+                }
+                if (c1 < cols) {
+                    best = scan(cell(c1, rr), x, y, best);
+                }
+            }
+            if (best >= 0) {
+                double bestDistance = distance(best, x, y);
+                // Every unscanned cell lies outside the square of rings 0..r.
+                double bound = Double.POSITIVE_INFINITY;
+                if (c0 > 0) {
+                    bound = Math.min(bound, x - (minX + c0 * cellWidth));
+                }
+                if (c1 < cols - 1) {
+                    bound = Math.min(bound, minX + (c1 + 1) * cellWidth - x);
+                }
+                if (r0 > 0) {
+                    bound = Math.min(bound, y - (minY + r0 * cellHeight));
+                }
+                if (r1 < rows - 1) {
+                    bound = Math.min(bound, minY + (r1 + 1) * cellHeight - y);
+                }
+                if (bestDistance <= bound * bound) {
+                    break;
+                }
+            }
+        }
+        return points[best];
+    }
+
+    /** Returns whichever of BEST and the points in cell C is closest to
+      * (X, Y), as a position in the coordinate arrays. */
+    private int scan(int c, double x, double y, int best) {
+        double bestDistance = best < 0 ? Double.POSITIVE_INFINITY : distance(best, x, y);
+        for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+            double d = distance(i, x, y);
+            if (d < bestDistance) {
+                best = i;
+                bestDistance = d;
+            }
+        }
+        return best;
+    }
+
+    /** Returns the squared Euclidean distance from the point at position I
+      * to (X, Y). */
+    private double distance(int i, double x, double y) {
+        double dx = xs[i] - x;
+        double dy = ys[i] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /** Returns the column holding X, clamped to the grid. */
+    private int col(double x) {
+        int c = (int) ((x - minX) / cellWidth);
+        return Math.max(0, Math.min(cols - 1, c));
+    }
+
+    /** Returns the row holding Y, clamped to the grid. */
+    private int row(double y) {
+        int r = (int) ((y - minY) / cellHeight);
+        return Math.max(0, Math.min(rows - 1, r));
+    }
+
+    private int cell(int c, int r) {
+        return r * cols + c;
+    }
+}
@@ -0,0 +1,109 @@
+package bearmaps;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import java.util.ArrayList;
+import java.util.Random;
+
+public class GridPointSetTest {
+
+    @Test
+    public void testNearestLectureExample() {
+        ArrayList<Point> points = new ArrayList<>();
+        points.add(new Point(2, 3));
+        points.add(new Point(4, 2));
+        points.add(new Point(4, 5));
+        points.add(new Point(3, 3));
+        points.add(new Point(1, 5));
+        points.add(new Point(4, 4));
+
+        GridPointSet grid = new GridPointSet(points);
+
+        assertEquals(6, grid.size());
+        assertEquals(new Point(1, 5), grid.nearest(0, 7));
+        assertEquals(new Point(3, 3), grid.nearest(3.1, 2.9));
+        assertEquals(new Point(4, 2), grid.nearest(100, -100));
+    }
+
+    @Test
+    public void testDegenerate() {
+        ArrayList<Point> points = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            points.add(new Point(i, 7));
+        }
+        GridPointSet line = new GridPointSet(points);
+        assertEquals(new Point(3, 7), line.nearest(3.2, -50));
+
+        points.clear();
+        points.add(new Point(1, 1));
+        points.add(new Point(1, 1));
+        GridPointSet same = new GridPointSet(points);
+        assertEquals(new Point(1, 1), same.nearest(5, 5));
+    }
+
+    /** A box of tiny but non-zero height must not get a huge grid. */
+    @Test(timeout = 5000)
+    public void testNearlyCollinear() {
+        for (double height : new double[]{1e-9, 1e-12}) {
+            ArrayList<Point> points = new ArrayList<>();
+            points.add(new Point(0, 0));
+            points.add(new Point(1, height));
+            GridPointSet grid = new GridPointSet(points);
+            assertEquals(new Point(0, 0), grid.nearest(0.2, 50));
+            assertEquals(new Point(1, height), grid.nearest(0.9, -50));
+        }
+
+        Random rnd = new Random(956);
+        ArrayList<Point> points = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            points.add(new Point(getRandomCoord(rnd), rnd.nextDouble() * 1e-10));
+        }
+        GridPointSet grid = new GridPointSet(points);
+        NaivePointSet nn = new NaivePointSet(points);
+        for (int i = 0; i < 1000; i++) {
+            Point target = new Point(1.5 * getRandomCoord(rnd), getRandomCoord(rnd));
+            double expected = Point.distance(target, nn.nearest(target.getX(), target.getY()));
+            double actual = Point.distance(target, grid.nearest(target.getX(), target.getY()));
+            assertEquals(expected, actual, 1E-8);
+        }
+    }
+
+    private double getRandomCoord(Random rnd) {
+        double min = -1000.0;
+        double max = 1000.0;
+        return rnd.nextDouble() * (max - min) + min;
+    }
+
+    @Test
+    public void testNearest() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        ArrayList<Point> points = new ArrayList<>();
+        for (int i = 0; i < 1E5; i++) {
+            // cluster half the points, so that cell occupancy varies widely
+            double x = getRandomCoord(rnd);
+            double y = getRandomCoord(rnd);
+            if (i % 2 == 0) {
+                x = x / 100 + 300;
+                y = y / 100 - 200;
+            }
+            points.add(new Point(x, y));
+        }
+        GridPointSet grid = new GridPointSet(points);
+        NaivePointSet nn = new NaivePointSet(points);
+
+        for (int i = 0; i < 1E3; i++) {
+            // some queries fall outside the grid
+            Point target = new Point(1.5 * getRandomCoord(rnd), 1.5 * getRandomCoord(rnd));
+            double expected = Point.distance(target,
+                    nn.nearest(target.getX(), target.getY()));
+            double actual = Point.distance(target,
+                    grid.nearest(target.getX(), target.getY()));
+            assertEquals(expected, actual, 1E-8);
+        }
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", GridPointSetTest.class);
+    }
+}
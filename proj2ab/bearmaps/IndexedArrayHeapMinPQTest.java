@@ -0,0 +1,116 @@
+package bearmaps;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IndexedArrayHeapMinPQTest {
+
+    @Test
+    public void testAddRemoveSizeSingleItem() {
+        IndexedArrayHeapMinPQ<String> pq = new IndexedArrayHeapMinPQ<>();
+
+        assertEquals(0, pq.size());
+        pq.add("hi", 1);
+        assertEquals(1, pq.size());
+        assertTrue(pq.contains("hi"));
+        assertEquals("hi", pq.getSmallest());
+        assertEquals("hi", pq.removeSmallest());
+        assertEquals(0, pq.size());
+        assertFalse(pq.contains("hi"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddDuplicate() {
+        IndexedArrayHeapMinPQ<String> pq = new IndexedArrayHeapMinPQ<>();
+        pq.add("hi", 1);
+        pq.add("hi", 2);
+    }
+
+    @Test(expected = java.util.NoSuchElementException.class)
+    public void testChangePriorityMissing() {
+        IndexedArrayHeapMinPQ<String> pq = new IndexedArrayHeapMinPQ<>();
+        pq.add("hi", 1);
+        pq.changePriority("bye", 2);
+    }
+
+    @Test
+    public void testExample() {
+        IndexedArrayHeapMinPQ<String> pq = new IndexedArrayHeapMinPQ<>(2);
+
+        String[] items = new String[]{"0th", "1st", "2nd", "3rd", "4th", "5th", "6th", "7th", "8th", "9th"};
+        int[] priorities = new int[]{1, 9, 5, 4, 8, 2, 3, 0, 7, 6};
+
+        for (int i = 0; i < items.length; i++) {
+            pq.add(items[i], priorities[i]);
+        }
+
+        assertEquals(10, pq.size());
+        assertEquals("7th", pq.removeSmallest());
+        assertEquals("0th", pq.removeSmallest());
+        assertEquals("5th", pq.removeSmallest());
+        assertEquals("6th", pq.removeSmallest());
+
+        assertTrue(pq.contains("3rd"));
+        assertFalse(pq.contains("7th"));
+
+        pq.changePriority("3rd", 8);
+        assertEquals("2nd", pq.getSmallest());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidArity() {
+        new IndexedArrayHeapMinPQ<String>(16, 3);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        checkRandomOperations(new IndexedArrayHeapMinPQ<>());
+    }
+
+    @Test
+    public void testRandomOperationsQuaternary() {
+        checkRandomOperations(new IndexedArrayHeapMinPQ<>(4, 4));
+    }
+
+    /** Mixes adds, removals and priority changes, checking every result
+      * against NaiveMinPQ. Priorities are distinct so ties cannot differ. */
+    static void checkRandomOperations(ExtrinsicMinPQ<Integer> pq) {
+        NaiveMinPQ<Integer> nn = new NaiveMinPQ<>();
+
+        long seed = 956;
+        Random rnd = new Random(seed);
+        int nextItem = 0;
+
+        for (int i = 0; i < 5000; i++) {
+            int op = rnd.nextInt(4);
+            if (op <= 1 || nn.size() == 0) {
+                double priority = rnd.nextDouble();
+                pq.add(nextItem, priority);
+                nn.add(nextItem, priority);
+                nextItem++;
+            } else if (op == 2) {
+                assertEquals(nn.removeSmallest(), pq.removeSmallest());
+            } else {
+                int item = rnd.nextInt(nextItem);
+                assertEquals(nn.contains(item), pq.contains(item));
+                if (nn.contains(item)) {
+                    double priority = rnd.nextDouble();
+                    pq.changePriority(item, priority);
+                    nn.changePriority(item, priority);
+                }
+            }
+            assertEquals(nn.size(), pq.size());
+        }
+
+        while (nn.size() > 0) {
+            assertEquals(nn.getSmallest(), pq.getSmallest());
+            assertEquals(nn.getSmallestPriority(), pq.getSmallestPriority(), 0.0);
+            assertEquals(nn.removeSmallest(), pq.removeSmallest());
+        }
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", IndexedArrayHeapMinPQTest.class);
+    }
+}
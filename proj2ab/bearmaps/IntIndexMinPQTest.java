@@ -0,0 +1,116 @@
+package bearmaps;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IntIndexMinPQTest {
+
+    @Test
+    public void testExample() {
+        IntIndexMinPQ pq = new IntIndexMinPQ(10);
+
+        int[] priorities = new int[]{1, 9, 5, 4, 8, 2, 3, 0, 7, 6};
+        for (int i = 0; i < priorities.length; i++) {
+            pq.add(i, priorities[i]);
+        }
+
+        assertEquals(10, pq.size());
+        assertEquals(7, pq.removeSmallest());
+        assertEquals(0, pq.removeSmallest());
+        assertEquals(5, pq.removeSmallest());
+        assertEquals(6, pq.removeSmallest());
+
+        assertTrue(pq.contains(3));
+        assertFalse(pq.contains(7));
+
+        pq.changePriority(3, 8);
+        assertEquals(2, pq.getSmallest());
+
+        // removed items may be added again
+        pq.add(7, 0);
+        assertEquals(7, pq.getSmallest());
+    }
+
+    @Test
+    public void testClearAndSmallestPriority() {
+        IntIndexMinPQ pq = new IntIndexMinPQ(10);
+        pq.add(3, 2.5);
+        pq.add(6, 1.5);
+        assertEquals(1.5, pq.getSmallestPriority(), 0.0);
+
+        pq.clear();
+        assertEquals(0, pq.size());
+        assertFalse(pq.contains(3));
+        assertFalse(pq.contains(6));
+
+        // cleared items may be added again
+        pq.add(6, 4.0);
+        assertEquals(6, pq.getSmallest());
+        assertEquals(4.0, pq.getSmallestPriority(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddDuplicate() {
+        IntIndexMinPQ pq = new IntIndexMinPQ(4);
+        pq.add(1, 1);
+        pq.add(1, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRange() {
+        IntIndexMinPQ pq = new IntIndexMinPQ(4);
+        pq.add(4, 1);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        checkRandomOperations(new IntIndexMinPQ(1000), 1000);
+    }
+
+    @Test
+    public void testRandomOperationsFourAry() {
+        checkRandomOperations(new IntIndexMinPQ(1000, 4), 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadArity() {
+        new IntIndexMinPQ(10, 3);
+    }
+
+    /** Runs the same random add / change / remove sequence against PQ, which
+      * must be empty and accept items below N, and a NaiveMinPQ, clearing
+      * both part way. */
+    static void checkRandomOperations(IntMinPQ pq, int n) {
+        NaiveMinPQ<Integer> nn = new NaiveMinPQ<>();
+
+        long seed = 956;
+        Random rnd = new Random(seed);
+
+        for (int i = 0; i < 5000; i++) {
+            int item = rnd.nextInt(n);
+            double priority = rnd.nextDouble();
+            if (i == 2500) {
+                pq.clear();
+                nn = new NaiveMinPQ<>();
+            } else if (rnd.nextInt(3) == 0 && nn.size() > 0) {
+                assertEquals((int) nn.removeSmallest(), pq.removeSmallest());
+            } else if (pq.contains(item)) {
+                pq.changePriority(item, priority);
+                nn.changePriority(item, priority);
+            } else {
+                pq.add(item, priority);
+                nn.add(item, priority);
+            }
+            assertEquals(nn.size(), pq.size());
+        }
+
+        while (nn.size() > 0) {
+            assertEquals((int) nn.removeSmallest(), pq.removeSmallest());
+        }
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", IntIndexMinPQTest.class);
+    }
+}
@@ -0,0 +1,242 @@
+package bearmaps;
+
+import java.util.NoSuchElementException;
+import java.lang.IllegalArgumentException;
+
+/**
+ * Int-keyed specialisation of PairingHeapMinPQ for items that are dense
+ * indices in [0, capacity). Items are their own slots, so the tree lives in
+ * child / sibling / prev arrays indexed by item with no hash index or free
+ * list, and no method allocates after construction.
+ *
+ * prev holds the left sibling, or the parent for a first child, NONE for the
+ * root and ABSENT for an item not in the PQ.
+ */
+public class IntPairingHeapMinPQ implements IntMinPQ {
+    private static final int NONE = -1;
+    private static final int ABSENT = -2;
+
+    private final double[] priorities;
+    private final int[] child;
+    private final int[] sibling;
+    private final int[] prev;
+    /** Scratch stack for clear. */
+    private final int[] stack;
+
+    private int root;
+    private int size;
+
+    /** Creates an empty PQ that accepts items 0 through CAPACITY - 1. */
+    public IntPairingHeapMinPQ(int capacity) {
+        priorities = new double[capacity];
+        child = new int[capacity];
+        sibling = new int[capacity];
+        prev = new int[capacity];
+        stack = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            prev[i] = ABSENT;
+        }
+        root = NONE;
+        size = 0;
+    }
+
+    /* Adds an item with the given priority value. Throws an
+     * IllegalArgumentException if item is already present. */
+    @Override
+    public void add(int item, double priority) {
+        if (contains(item)) {
+            throw new IllegalArgumentException("Item already present.");
+        }
+        priorities[item] = priority;
+        child[item] = NONE;
+        sibling[item] = NONE;
+        prev[item] = NONE;
+
+        root = link(root, item);
+        size++;
+    }
+
+    /* Returns true if the PQ contains the given item. */
+    @Override
+    public boolean contains(int item) {
+        validateItem(item);
+        return prev[item] != ABSENT;
+    }
+
+    /* Returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
+    @Override
+    public int getSmallest() {
+        if (size == 0) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        return root;
+    }
+
+    /* Returns the priority of the minimum item. Throws NoSuchElementException if the PQ
+     * is empty. */
+    @Override
+    public double getSmallestPriority() {
+        return priorities[getSmallest()];
+    }
+
+    /* Removes and returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
+    @Override
+    public int removeSmallest() {
+        if (size == 0) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        int smallest = root;
+        root = mergePairs(child[smallest]);
+        prev[smallest] = ABSENT;
+        size--;
+        return smallest;
+    }
+
+    /* Returns the number of items in the PQ. */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /* Changes the priority of the given item. Throws NoSuchElementException if the item
+     * doesn't exist. */
+    @Override
+    public void changePriority(int item, double priority) {
+        if (!contains(item)) {
+            throw new NoSuchElementException("Item not found.");
+        }
+        double oldPriority = priorities[item];
+        if (priority < oldPriority) {
+            /* Decrease-key: the subtree stays heap-ordered, so just move it. */
+            priorities[item] = priority;
+            if (item != root) {
+                cut(item);
+                root = link(root, item);
+            }
+        } else if (priority > oldPriority) {
+            /* Increase-key: detach the children, then reinsert the item alone. */
+            int children = child[item];
+            child[item] = NONE;
+            if (item == root) {
+                root = mergePairs(children);
+            } else {
+                cut(item);
+                root = link(root, mergePairs(children));
+            }
+            priorities[item] = priority;
+            root = link(root, item);
+        }
+    }
+
+    /* Removes every item, in time proportional to the number of items. */
+    @Override
+    public void clear() {
+        int top = 0;
+        if (root != NONE) {
+            stack[top] = root;
+            top++;
+        }
+        while (top > 0) {
+            top--;
+            int item = stack[top];
+            for (int c = child[item]; c != NONE; c = sibling[c]) {
+                stack[top] = c;
+                top++;
+            }
+            prev[item] = ABSENT;
+        }
+        root = NONE;
+        size = 0;
+    }
+
+    /** HELPER METHODS */
+
+    /** Throws an exception if the item is not in the valid range. */
+    private void validateItem(int item) {
+        if (item < 0 || item >= prev.length) {
+            throw new IllegalArgumentException(
+                    "Invalid item. Must be between 0 and " + (prev.length - 1)
+                    + ". Given: " + item + ".");
+        }
+    }
+
+    /** Links two detached trees and returns the root of the result. The
+      * root with the larger priority becomes the first child of the other;
+      * on ties A stays the root. */
+    private int link(int a, int b) {
+        if (a == NONE) {
+            return b;
+        }
+        if (b == NONE) {
+            return a;
+        }
+        if (priorities[b] < priorities[a]) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+        int first = child[a];
+        sibling[b] = first;
+        if (first != NONE) {
+            prev[first] = b;
+        }
+        prev[b] = a;
+        child[a] = b;
+        return a;
+    }
+
+    /** Detaches the subtree rooted at ITEM from its parent and siblings. */
+    private void cut(int item) {
+        int p = prev[item];
+        int next = sibling[item];
+        if (child[p] == item) {
+            child[p] = next;
+        } else {
+            sibling[p] = next;
+        }
+        if (next != NONE) {
+            prev[next] = p;
+        }
+        sibling[item] = NONE;
+        prev[item] = NONE;
+    }
+
+    /** Merges the sibling list starting at FIRST into a single tree using the
+      * standard two-pass scheme and returns its root. Pairs are linked left
+      * to right, then the results are linked right to left. */
+    private int mergePairs(int first) {
+        if (first == NONE) {
+            return NONE;
+        }
+        /* First pass: link adjacent pairs, chaining the winners in reverse
+         * order through their (now unused) sibling fields. */
+        int pairs = NONE;
+        int a = first;
+        while (a != NONE) {
+            int b = sibling[a];
+            int next = b == NONE ? NONE : sibling[b];
+            prev[a] = NONE;
+            sibling[a] = NONE;
+            if (b != NONE) {
+                prev[b] = NONE;
+                sibling[b] = NONE;
+                a = link(a, b);
+            }
+            sibling[a] = pairs;
+            pairs = a;
+            a = next;
+        }
+        /* Second pass: fold the winners, last pair first. */
+        int result = pairs;
+        int rest = sibling[result];
+        sibling[result] = NONE;
+        while (rest != NONE) {
+            int next = sibling[rest];
+            sibling[rest] = NONE;
+            result = link(result, rest);
+            rest = next;
+        }
+        prev[result] = NONE;
+        return result;
+    }
+}
@@ -0,0 +1,90 @@
+package bearmaps;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IntPairingHeapMinPQTest {
+
+    @Test
+    public void testExample() {
+        IntPairingHeapMinPQ pq = new IntPairingHeapMinPQ(10);
+
+        int[] priorities = new int[]{1, 9, 5, 4, 8, 2, 3, 0, 7, 6};
+        for (int i = 0; i < priorities.length; i++) {
+            pq.add(i, priorities[i]);
+        }
+
+        assertEquals(10, pq.size());
+        assertEquals(7, pq.removeSmallest());
+        assertEquals(0, pq.removeSmallest());
+        assertEquals(5, pq.removeSmallest());
+        assertEquals(6, pq.removeSmallest());
+
+        assertTrue(pq.contains(3));
+        assertFalse(pq.contains(7));
+
+        pq.changePriority(3, 8);
+        assertEquals(2, pq.getSmallest());
+
+        pq.changePriority(9, -1);
+        assertEquals(9, pq.getSmallest());
+        assertEquals(-1.0, pq.getSmallestPriority(), 0.0);
+
+        // removed items may be added again
+        pq.add(7, -2);
+        assertEquals(7, pq.removeSmallest());
+        assertEquals(9, pq.removeSmallest());
+        assertEquals(2, pq.removeSmallest());
+    }
+
+    @Test
+    public void testIncreaseRootPriority() {
+        IntPairingHeapMinPQ pq = new IntPairingHeapMinPQ(3);
+        pq.add(0, 1);
+        pq.add(1, 2);
+        pq.add(2, 3);
+        pq.changePriority(0, 10);
+        assertEquals(1, pq.removeSmallest());
+        assertEquals(2, pq.removeSmallest());
+        assertEquals(0, pq.removeSmallest());
+        assertEquals(0, pq.size());
+    }
+
+    @Test
+    public void testClear() {
+        IntPairingHeapMinPQ pq = new IntPairingHeapMinPQ(10);
+        for (int i = 0; i < 10; i++) {
+            pq.add(i, 10 - i);
+        }
+        pq.removeSmallest();
+        pq.clear();
+        assertEquals(0, pq.size());
+        for (int i = 0; i < 10; i++) {
+            assertFalse(pq.contains(i));
+        }
+        pq.add(4, 1);
+        assertEquals(4, pq.getSmallest());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddDuplicate() {
+        IntPairingHeapMinPQ pq = new IntPairingHeapMinPQ(4);
+        pq.add(1, 1);
+        pq.add(1, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRange() {
+        IntPairingHeapMinPQ pq = new IntPairingHeapMinPQ(4);
+        pq.add(4, 1);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        IntIndexMinPQTest.checkRandomOperations(new IntPairingHeapMinPQ(1000), 1000);
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", IntPairingHeapMinPQTest.class);
+    }
+}
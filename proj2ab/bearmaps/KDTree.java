@@ -1,27 +1,72 @@
 package bearmaps;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
+/**
+ * A 2-d tree. Points may be added and removed after construction. Removal
+ * only marks a node as deleted; a subtree is rebuilt without its markers once
+ * more than half of its nodes are deleted. An insertion that lands too deep
+ * rebuilds the nearest ancestor whose children are out of balance, as in a
+ * scapegoat tree. Both keep the cost of edits logarithmic when amortized.
+ * Queries may run concurrently with each other but not with edits.
+ */
 public class KDTree implements PointSet {
+    /** A subtree is out of balance when a child holds more than this
+      * fraction of its nodes. */
+    private static final double ALPHA = 0.7;
+    /** Slices smaller than this are built on the current thread. */
+    private static final int PARALLEL_THRESHOLD = 8192;
+    /** Batches of fewer queries than this are answered on the current thread. */
+    private static final int BATCH_THRESHOLD = 2048;
+
     private Node root;
     private int DIM;
+    /** Index given to the next point added. */
+    private int nextIndex;
+
+    /** Per-thread scratch state, so that a nearest query allocates nothing. */
+    private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+    /** State of one nearest-neighbour search: the best node so far, its
+      * squared distance to the target, and the number of nodes visited. */
+    private static class Search {
+        private KDTree.Node best;
+        private double bestDistance;
+        private int visited;
+    }
 
     private class Node {
         private Point point;
+        /** Position of point in the list given to the constructor, or the
+          * value returned by add. */
+        private int index;
         private Node left, right;
         private int partitionIndex;
+        /** True once the point has been removed. */
+        private boolean deleted;
+        /** Number of nodes in this subtree, and how many of them are deleted. */
+        private int size, dead;
 
-        public Node(Point point, int depth) {
+        public Node(Point point, int index, int depth) {
             this.point = point;
+            this.index = index;
             this.left = null;
             this.right = null;
             this.partitionIndex = depth % DIM;
+            this.size = 1;
         }
 
         /** Returns the squared Euclidean distance between the Node's Point
-          * and the given target Point. */
-        public double distance(Point target) {
-            return Point.distance(target, point);
+          * and (X, Y). */
+        public double distance(double x, double y) {
+            double dx = point.getX() - x;
+            double dy = point.getY() - y;
+            return dx * dx + dy * dy;
         }
 
         /** Returns the Point coordinate value that the Node uses for
@@ -45,70 +90,609 @@ public class KDTree implements PointSet {
         }
     }
 
-    private Node put(Point p, Node n, int depth) {
+    private Node put(Point p, int index, Node n, int depth) {
         if (n == null) {
-            return new Node(p, depth);
+            return new Node(p, index, depth);
         }
         double nKey = n.key();
         double pKey = n.keyFrom(p);
 
         depth++;
+        n.size++;
 
         if (pKey < nKey) {
-            n.left = put(p, n.left, depth);
+            n.left = put(p, index, n.left, depth);
         } else if (pKey >= nKey) {
-            n.right = put(p, n.right, depth);
+            n.right = put(p, index, n.right, depth);
         }
 
         return n;
     }
 
-    /** Adds Point p to the tree. */
-    private void put(Point p) {
-        root = put(p, root, 0);
+    /** Adds Point p, the INDEX-th of the constructor's list, to the tree. */
+    private void put(Point p, int index) {
+        root = put(p, index, root, 0);
     }
 
     /** Constructor. */
     public KDTree(List<Point> points) {
+        this(points, false);
+    }
+
+    /** Constructor. If BALANCED is true, the tree is bulk-loaded by splitting
+      * on the median of each slice, so its height is about log2(n) whatever
+      * the order of POINTS. Otherwise points are inserted in list order. */
+    public KDTree(List<Point> points, boolean balanced) {
         DIM = 2;
-        for (Point p : points) {
-            put(p);
+        if (balanced) {
+            Point[] pts = points.toArray(new Point[0]);
+            int[] ids = new int[pts.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = i;
+            }
+            root = ForkJoinPool.commonPool().invoke(new BuildTask(pts, ids, 0, pts.length, 0));
+        } else {
+            int i = 0;
+            for (Point p : points) {
+                put(p, i);
+                i++;
+            }
+        }
+        nextIndex = points.size();
+    }
+
+    private static int sizeOf(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    /** Returns the number of points in the tree, not counting removed ones. */
+    public int size() {
+        return sizeOf(root) - (root == null ? 0 : root.dead);
+    }
+
+    /** Adds P to the tree and returns its index, which follows on from the
+      * indices of the constructor's list. */
+    public int add(Point p) {
+        int index = nextIndex;
+        nextIndex++;
+
+        List<Node> path = new ArrayList<>();
+        Node n = root;
+        while (n != null) {
+            path.add(n);
+            n.size++;
+            n = (n.keyFrom(p) < n.key()) ? n.left : n.right;
+        }
+        Node leaf = new Node(p, index, path.size());
+        if (path.isEmpty()) {
+            root = leaf;
+        } else {
+            Node parent = path.get(path.size() - 1);
+            if (parent.keyFrom(p) < parent.key()) {
+                parent.left = leaf;
+            } else {
+                parent.right = leaf;
+            }
         }
+
+        // too deep for the tree's size: rebuild the lowest unbalanced ancestor
+        if (path.size() > Math.log(root.size) / Math.log(1 / ALPHA)) {
+            for (int i = path.size() - 1; i >= 0; i--) {
+                Node a = path.get(i);
+                if (Math.max(sizeOf(a.left), sizeOf(a.right)) > ALPHA * a.size) {
+                    rebuild(path, i);
+                    break;
+                }
+            }
+        }
+        return index;
     }
 
-    private Node nearest(Node n, Point target, Node best) {
+    /** Removes one point equal to P from the tree. Returns false if there is
+      * none. */
+    public boolean remove(Point p) {
+        List<Node> path = new ArrayList<>();
+        Node n = root;
+        while (n != null) {
+            path.add(n);
+            if (!n.deleted && n.point.equals(p)) {
+                break;
+            }
+            // equal keys always go right, so one path holds every copy of p
+            n = (n.keyFrom(p) < n.key()) ? n.left : n.right;
+        }
         if (n == null) {
-            return best;
+            return false;
         }
-        if (n.distance(target) < best.distance(target)) {
-            best = n;
+        n.deleted = true;
+        for (Node a : path) {
+            a.dead++;
         }
-        double nKey = n.key();
-        double targetKey = n.keyFrom(target);
+
+        // rebuild the highest subtree that is now mostly deleted
+        for (int i = 0; i < path.size(); i++) {
+            Node a = path.get(i);
+            if (2 * a.dead > a.size) {
+                rebuild(path, i);
+                break;
+            }
+        }
+        return true;
+    }
+
+    /** Replaces the subtree rooted at PATH[I], which lies at depth I, with a
+      * median-built one holding only its live points, and fixes the counts
+      * of its ancestors. */
+    private void rebuild(List<Node> path, int i) {
+        Node old = path.get(i);
+        int live = old.size - old.dead;
+        Point[] pts = new Point[live];
+        int[] ids = new int[live];
+        collect(old, pts, ids, 0);
+        Node fresh = build(pts, ids, 0, live, i);
+
+        if (i == 0) {
+            root = fresh;
+        } else {
+            Node parent = path.get(i - 1);
+            if (parent.left == old) {
+                parent.left = fresh;
+            } else {
+                parent.right = fresh;
+            }
+        }
+        int removed = old.dead;
+        for (int j = 0; j < i; j++) {
+            path.get(j).size -= removed;
+            path.get(j).dead -= removed;
+        }
+    }
+
+    /** Copies the live points of the subtree at N, and their indices, into
+      * PTS and IDS from position I on. Returns the next free position. */
+    private int collect(Node n, Point[] pts, int[] ids, int i) {
+        if (n == null) {
+            return i;
+        }
+        i = collect(n.left, pts, ids, i);
+        if (!n.deleted) {
+            pts[i] = n.point;
+            ids[i] = n.index;
+            i++;
+        }
+        return collect(n.right, pts, ids, i);
+    }
+
+    /** Builds the subtree for the slice [lo, hi) of pts, forking the two
+      * halves when the slice is large. */
+    private class BuildTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+
+        private final Point[] pts;
+        private final int[] ids;
+        private final int lo, hi, depth;
+
+        BuildTask(Point[] pts, int[] ids, int lo, int hi, int depth) {
+            this.pts = pts;
+            this.ids = ids;
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Node compute() {
+            if (hi - lo < PARALLEL_THRESHOLD) {
+                return build(pts, ids, lo, hi, depth);
+            }
+            int mid = partition(pts, ids, lo, hi, depth % DIM);
+            Node n = new Node(pts[mid], ids[mid], depth);
+            BuildTask left = new BuildTask(pts, ids, lo, mid, depth + 1);
+            left.fork();
+            n.right = new BuildTask(pts, ids, mid + 1, hi, depth + 1).compute();
+            n.left = left.join();
+            n.size = hi - lo;
+            return n;
+        }
+    }
+
+    /** Sequentially builds the subtree for the slice [lo, hi) of pts. ids
+      * holds each point's list index and is permuted alongside pts. */
+    private Node build(Point[] pts, int[] ids, int lo, int hi, int depth) {
+        if (lo >= hi) {
+            return null;
+        }
+        int mid = partition(pts, ids, lo, hi, depth % DIM);
+        Node n = new Node(pts[mid], ids[mid], depth);
+        n.left = build(pts, ids, lo, mid, depth + 1);
+        n.right = build(pts, ids, mid + 1, hi, depth + 1);
+        n.size = hi - lo;
+        return n;
+    }
+
+    /** Rearranges the slice [lo, hi) of pts around a median in dimension DIM
+      * and returns its index. Points before it have strictly smaller keys and
+      * points after it have keys at least as large, matching put. */
+    private static int partition(Point[] pts, int[] ids, int lo, int hi, int dim) {
+        int mid = (lo + hi) >>> 1;
+        select(pts, ids, lo, hi - 1, mid, dim);
+        double median = key(pts[mid], dim);
+
+        // Move keys equal to the median out of the left part.
+        int lt = lo;
+        for (int i = lo; i < mid; i++) {
+            if (key(pts[i], dim) < median) {
+                swap(pts, ids, i, lt);
+                lt++;
+            }
+        }
+        swap(pts, ids, lt, mid);
+        return lt;
+    }
+
+    /** Quickselect: places the K-th smallest point of pts[lo..hi] in dimension
+      * DIM at index K, with no larger keys before it and no smaller after. */
+    private static void select(Point[] pts, int[] ids, int lo, int hi, int k, int dim) {
+        while (lo < hi) {
+            double pivot = key(pts[(lo + hi) >>> 1], dim);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key(pts[i], dim) < pivot) {
+                    i++;
+                }
+                while (key(pts[j], dim) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(pts, ids, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static double key(Point p, int dim) {
+        return dim == 0 ? p.getX() : p.getY();
+    }
+
+    private static void swap(Point[] pts, int[] ids, int i, int j) {
+        Point tmp = pts[i];
+        pts[i] = pts[j];
+        pts[j] = tmp;
+        int tmpId = ids[i];
+        ids[i] = ids[j];
+        ids[j] = tmpId;
+    }
+
+    private void nearest(Node n, double x, double y, Search s) {
+        if (n == null) {
+            return;
+        }
+        s.visited++;
+        if (!n.deleted) {
+            double distance = n.distance(x, y);
+            if (distance < s.bestDistance) {
+                s.best = n;
+                s.bestDistance = distance;
+            }
+        }
+        double diff = (n.partitionIndex == 0) ? x - n.point.getX() : y - n.point.getY();
         Node goodSide, badSide;
-        if (targetKey < nKey) {
+        if (diff < 0) {
             goodSide = n.left;
             badSide = n.right;
         } else {
             goodSide = n.right;
             badSide = n.left;
         }
-        best = nearest(goodSide, target, best);
+        nearest(goodSide, x, y, s);
 
         // prune here based on best possible squared Euclidean distance
-        double bestPossBadSideDistance = Math.pow(targetKey - nKey, 2);
-        if (bestPossBadSideDistance < best.distance(target)) {
-            best = nearest(badSide, target, best);
+        if (diff * diff < s.bestDistance) {
+            nearest(badSide, x, y, s);
         }
+    }
 
-        return best;
+    /** Runs a nearest query in the calling thread's Search and returns it. */
+    private Search search(double x, double y) {
+        Search s = searches.get();
+        s.best = null;
+        s.bestDistance = Double.POSITIVE_INFINITY;
+        s.visited = 0;
+        nearest(root, x, y, s);
+        if (s.best == null) {
+            throw new IllegalStateException("The tree is empty.");
+        }
+        return s;
     }
 
-    /** Returns the closest point to the inputted coordinates. */
+    /** Returns the closest point to the inputted coordinates. Allocates
+      * nothing; the search state is reused per thread. */
     @Override
     public Point nearest(double x, double y) {
-        Point target = new Point(x, y);
-        return nearest(root, target, root).point;
+        return search(x, y).best.point;
+    }
+
+    /** Returns the index, in the list given to the constructor, of the
+      * closest point to the inputted coordinates. */
+    public int nearestIndex(double x, double y) {
+        return search(x, y).best.index;
+    }
+
+    /** Returns, for every query (XS[i], YS[i]), the index in the list given
+      * to the constructor of its closest point. Large batches are split
+      * across the common fork/join pool; each worker reuses its own Search. */
+    public int[] nearestIndices(double[] xs, double[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays differ in length: "
+                    + xs.length + " and " + ys.length + ".");
+        }
+        int[] result = new int[xs.length];
+        ForkJoinPool.commonPool().invoke(new NearestTask(xs, ys, result, 0, xs.length));
+        return result;
+    }
+
+    /** Answers the queries in [lo, hi) of a batch, halving large ranges. */
+    private class NearestTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] xs, ys;
+        private final int[] result;
+        private final int lo, hi;
+
+        NearestTask(double[] xs, double[] ys, int[] result, int lo, int hi) {
+            this.xs = xs;
+            this.ys = ys;
+            this.result = result;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo < BATCH_THRESHOLD) {
+                for (int i = lo; i < hi; i++) {
+                    result[i] = nearestIndex(xs[i], ys[i]);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new NearestTask(xs, ys, result, lo, mid),
+                    new NearestTask(xs, ys, result, mid, hi));
+        }
+    }
+
+    /** Returns the number of nodes visited by the calling thread's most
+      * recent nearest query. */
+    public int lastVisitedCount() {
+        return searches.get().visited;
+    }
+
+    /** A max-heap of at most capacity points, keyed on squared distance to
+      * a query point, holding the closest points seen so far. */
+    private static class Candidates {
+        private final Point[] points;
+        private final double[] distances;
+        private int size;
+
+        Candidates(int capacity) {
+            points = new Point[capacity];
+            distances = new double[capacity];
+            size = 0;
+        }
+
+        boolean isFull() {
+            return size == points.length;
+        }
+
+        /** Returns the largest squared distance held. */
+        double worst() {
+            return distances[0];
+        }
+
+        /** Adds P at squared distance D, evicting the farthest candidate if
+          * full and P is closer than it. */
+        void offer(Point p, double d) {
+            if (size < points.length) {
+                int i = size;
+                size++;
+                while (i > 0 && distances[(i - 1) >>> 1] < d) {
+                    int parent = (i - 1) >>> 1;
+                    points[i] = points[parent];
+                    distances[i] = distances[parent];
+                    i = parent;
+                }
+                points[i] = p;
+                distances[i] = d;
+            } else if (d < distances[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && distances[child + 1] > distances[child]) {
+                        child++;
+                    }
+                    if (distances[child] <= d) {
+                        break;
+                    }
+                    points[i] = points[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                points[i] = p;
+                distances[i] = d;
+            }
+        }
+
+        /** Returns the candidates, nearest first. */
+        List<Point> toSortedList() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+            List<Point> result = new ArrayList<>(size);
+            for (int i : order) {
+                result.add(points[i]);
+            }
+            return result;
+        }
+    }
+
+    /** Collects the closest points in the subtree at N. BOX is the squared
+      * distance from (X, Y) to the region the subtree covers, and OFFSETS
+      * holds that region's per-dimension distance to (X, Y). */
+    private void kNearest(Node n, double x, double y, Candidates best,
+                          double[] offsets, double box) {
+        if (n == null) {
+            return;
+        }
+        if (!n.deleted) {
+            best.offer(n.point, n.distance(x, y));
+        }
+        int dim = n.partitionIndex;
+        double diff = (dim == 0) ? x - n.point.getX() : y - n.point.getY();
+        Node goodSide, badSide;
+        if (diff < 0) {
+            goodSide = n.left;
+            badSide = n.right;
+        } else {
+            goodSide = n.right;
+            badSide = n.left;
+        }
+        kNearest(goodSide, x, y, best, offsets, box);
+
+        // the bad side's region is at least |diff| away in this dimension
+        double oldOffset = offsets[dim];
+        double badBox = box - oldOffset * oldOffset + diff * diff;
+        if (!best.isFull() || badBox < best.worst()) {
+            offsets[dim] = diff;
+            kNearest(badSide, x, y, best, offsets, badBox);
+            offsets[dim] = oldOffset;
+        }
+    }
+
+    /** Returns the K points closest to the inputted coordinates, nearest
+      * first, or every point if the tree holds fewer than K. */
+    public List<Point> kNearest(double x, double y, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be non-negative. Given: " + k + ".");
+        }
+        Candidates best = new Candidates(k);
+        if (k > 0) {
+            kNearest(root, x, y, best, new double[DIM], 0);
+        }
+        return best.toSortedList();
+    }
+
+    /** Adds to RESULT the points in the subtree at N within squared distance
+      * R2 of (X, Y). BOX and OFFSETS are as for kNearest. */
+    private void withinRadius(Node n, double x, double y, double r2, List<Point> result,
+                              double[] offsets, double box) {
+        if (n == null) {
+            return;
+        }
+        if (!n.deleted && n.distance(x, y) <= r2) {
+            result.add(n.point);
+        }
+        int dim = n.partitionIndex;
+        double diff = (dim == 0) ? x - n.point.getX() : y - n.point.getY();
+        Node goodSide, badSide;
+        if (diff < 0) {
+            goodSide = n.left;
+            badSide = n.right;
+        } else {
+            goodSide = n.right;
+            badSide = n.left;
+        }
+        withinRadius(goodSide, x, y, r2, result, offsets, box);
+
+        double oldOffset = offsets[dim];
+        double badBox = box - oldOffset * oldOffset + diff * diff;
+        if (badBox <= r2) {
+            offsets[dim] = diff;
+            withinRadius(badSide, x, y, r2, result, offsets, badBox);
+            offsets[dim] = oldOffset;
+        }
+    }
+
+    /** Returns every point within Euclidean distance R of the inputted
+      * coordinates, in no particular order. */
+    public List<Point> withinRadius(double x, double y, double r) {
+        if (r < 0) {
+            throw new IllegalArgumentException("Radius must be non-negative. Given: " + r + ".");
+        }
+        List<Point> result = new ArrayList<>();
+        withinRadius(root, x, y, r * r, result, new double[DIM], 0);
+        return result;
+    }
+
+    /** Visits the points of the subtree at N that lie in the rectangle
+      * [XMIN, XMAX] x [YMIN, YMAX], adding them to RESULT unless it is null,
+      * and returns how many there are. Subtrees on the far side of a
+      * splitting line are skipped. */
+    private int range(Node n, double xMin, double xMax, double yMin, double yMax,
+                      List<Point> result) {
+        int count = 0;
+        while (n != null) {
+            double px = n.point.getX();
+            double py = n.point.getY();
+            if (!n.deleted && px >= xMin && px <= xMax && py >= yMin && py <= yMax) {
+                if (result != null) {
+                    result.add(n.point);
+                }
+                count++;
+            }
+            double key = (n.partitionIndex == 0) ? px : py;
+            double min = (n.partitionIndex == 0) ? xMin : yMin;
+            double max = (n.partitionIndex == 0) ? xMax : yMax;
+            // left keys are smaller than key, right keys at least key
+            boolean goLeft = min < key;
+            boolean goRight = max >= key;
+            if (goLeft && goRight) {
+                count += range(n.left, xMin, xMax, yMin, yMax, result);
+                n = n.right;
+            } else if (goLeft) {
+                n = n.left;
+            } else {
+                n = n.right;
+            }
+        }
+        return count;
+    }
+
+    private static void checkRange(double xMin, double xMax, double yMin, double yMax) {
+        if (xMin > xMax || yMin > yMax) {
+            throw new IllegalArgumentException("Invalid range: [" + xMin + ", " + xMax
+                    + "] x [" + yMin + ", " + yMax + "].");
+        }
+    }
+
+    /** Returns every point with XMIN <= x <= XMAX and YMIN <= y <= YMAX, in
+      * no particular order. For lon/lat points, x is the longitude. */
+    public List<Point> range(double xMin, double xMax, double yMin, double yMax) {
+        checkRange(xMin, xMax, yMin, yMax);
+        List<Point> result = new ArrayList<>();
+        range(root, xMin, xMax, yMin, yMax, result);
+        return result;
+    }
+
+    /** Returns the number of points with XMIN <= x <= XMAX and
+      * YMIN <= y <= YMAX, without collecting them. */
+    public int count(double xMin, double xMax, double yMin, double yMax) {
+        checkRange(xMin, xMax, yMin, yMax);
+        return range(root, xMin, xMax, yMin, yMax, null);
     }
 
     private StringBuilder toString(Node n, StringBuilder sb) {
@@ -116,11 +700,13 @@ public class KDTree implements PointSet {
             return sb;
         }
         sb = toString(n.left, sb);
-        sb.append("[");
-        sb.append(n.point.getX());
-        sb.append(", ");
-        sb.append(n.point.getY());
-        sb.append("], ");
+        if (!n.deleted) {
+            sb.append("[");
+            sb.append(n.point.getX());
+            sb.append(", ");
+            sb.append(n.point.getY());
+            sb.append("], ");
+        }
         sb = toString(n.right, sb);
         return sb;
     }
@@ -2,7 +2,11 @@ package bearmaps;
 
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 
 public class KDTreeTest {
@@ -79,6 +83,285 @@ public class KDTreeTest {
         }
     }
 
+    @Test
+    public void testBalancedNearest() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        ArrayList<Point> points = new ArrayList<>();
+        for (int i = 0; i < 1E5; i++) {
+            // round so that many points share coordinates
+            double x = Math.round(getRandomCoord(rnd) / 10) * 10;
+            double y = getRandomCoord(rnd);
+            points.add(new Point(x, y));
+        }
+        KDTree tree = new KDTree(points, true);
+        NaivePointSet nn = new NaivePointSet(points);
+
+        for (int i = 0; i < 1E3; i++) {
+            Point target = new Point(getRandomCoord(rnd), getRandomCoord(rnd));
+            double expected = Point.distance(target,
+                    nn.nearest(target.getX(), target.getY()));
+            double actual = Point.distance(target,
+                    tree.nearest(target.getX(), target.getY()));
+            assertEquals(expected, actual, 1E-8);
+        }
+    }
+
+    @Test
+    public void testBalancedSortedInput() {
+        // Inserting these in order would give a tree of height 1E5.
+        ArrayList<Point> points = new ArrayList<>();
+        for (int i = 0; i < 1E5; i++) {
+            points.add(new Point(i, 2 * i));
+        }
+        KDTree tree = new KDTree(points, true);
+
+        assertEquals(new Point(500, 1000), tree.nearest(500.2, 1000.1));
+        assertEquals(new Point(0, 0), tree.nearest(-10, -10));
+        assertEquals(new Point(99999, 199998), tree.nearest(1E6, 1E6));
+    }
+
+    @Test
+    public void testLastVisitedCount() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        ArrayList<Point> points = new ArrayList<>();
+        int n = 100000;
+        for (int i = 0; i < n; i++) {
+            points.add(new Point(getRandomCoord(rnd), getRandomCoord(rnd)));
+        }
+        KDTree tree = new KDTree(points, true);
+
+        // a single point is the only node visited
+        KDTree single = new KDTree(List.of(new Point(1, 2)));
+        single.nearest(5, 5);
+        assertEquals(1, single.lastVisitedCount());
+
+        long total = 0;
+        int queries = 1000;
+        for (int i = 0; i < queries; i++) {
+            double x = getRandomCoord(rnd);
+            double y = getRandomCoord(rnd);
+            tree.nearest(x, y);
+            int visited = tree.lastVisitedCount();
+            assertTrue(visited > 0);
+            assertTrue(visited < n);
+
+            // the count is for the latest query only, not a running total
+            tree.nearestIndex(x, y);
+            assertEquals(visited, tree.lastVisitedCount());
+            total += visited;
+        }
+        // a balanced tree should look at a few dozen nodes, not a large fraction of them
+        assertTrue(total / queries < n / 100);
+    }
+
+    /** Returns N random points on a coarse grid, so that many distances tie. */
+    private List<Point> getGridPoints(int n, Random rnd) {
+        List<Point> points = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            double x = Math.round(getRandomCoord(rnd) / 20) * 20;
+            double y = Math.round(getRandomCoord(rnd) / 20) * 20;
+            points.add(new Point(x, y));
+        }
+        return points;
+    }
+
+    @Test
+    public void testKNearest() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        List<Point> points = getGridPoints(10000, rnd);
+        NaivePointSet nn = new NaivePointSet(points);
+
+        for (KDTree tree : new KDTree[]{new KDTree(points), new KDTree(points, true)}) {
+            for (int i = 0; i < 200; i++) {
+                Point target = new Point(getRandomCoord(rnd), getRandomCoord(rnd));
+                int k = 1 + rnd.nextInt(50);
+                List<Point> expected = nn.kNearest(target.getX(), target.getY(), k);
+                List<Point> actual = tree.kNearest(target.getX(), target.getY(), k);
+                assertEquals(k, actual.size());
+                for (int j = 0; j < k; j++) {
+                    assertEquals(Point.distance(target, expected.get(j)),
+                            Point.distance(target, actual.get(j)), 1E-8);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testKNearestSmall() {
+        List<Point> points = List.of(new Point(2, 3), new Point(4, 2), new Point(4, 5),
+                new Point(3, 3), new Point(1, 5), new Point(4, 4));
+        KDTree tree = new KDTree(points);
+
+        assertEquals(List.of(), tree.kNearest(0, 7, 0));
+        assertEquals(List.of(new Point(1, 5)), tree.kNearest(0, 7, 1));
+        assertEquals(6, tree.kNearest(0, 7, 10).size());
+        assertEquals(new Point(4, 2), tree.kNearest(0, 7, 10).get(5));
+    }
+
+    @Test
+    public void testWithinRadius() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        List<Point> points = getGridPoints(10000, rnd);
+        NaivePointSet nn = new NaivePointSet(points);
+        Comparator<Point> byCoords = Comparator.comparingDouble(Point::getX)
+                .thenComparingDouble(Point::getY);
+
+        for (KDTree tree : new KDTree[]{new KDTree(points), new KDTree(points, true)}) {
+            for (int i = 0; i < 200; i++) {
+                // on the grid, so that some points lie exactly on the circle
+                Point target = getGridPoints(1, rnd).get(0);
+                double r = 20 * rnd.nextInt(8);
+                List<Point> expected = nn.withinRadius(target.getX(), target.getY(), r);
+                List<Point> actual = tree.withinRadius(target.getX(), target.getY(), r);
+                expected.sort(byCoords);
+                actual.sort(byCoords);
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testNearestIndices() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        List<Point> points = getGridPoints(20000, rnd);
+        NaivePointSet nn = new NaivePointSet(points);
+
+        int queries = 10000;
+        double[] xs = new double[queries];
+        double[] ys = new double[queries];
+        for (int i = 0; i < queries; i++) {
+            xs[i] = getRandomCoord(rnd);
+            ys[i] = getRandomCoord(rnd);
+        }
+        for (KDTree tree : new KDTree[]{new KDTree(points), new KDTree(points, true)}) {
+            int[] result = tree.nearestIndices(xs, ys);
+            assertEquals(queries, result.length);
+            for (int i = 0; i < queries; i++) {
+                Point target = new Point(xs[i], ys[i]);
+                assertEquals(Point.distance(target, nn.nearest(xs[i], ys[i])),
+                        Point.distance(target, points.get(result[i])), 1E-8);
+                assertEquals(result[i], tree.nearestIndex(xs[i], ys[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testRange() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        List<Point> points = getGridPoints(10000, rnd);
+        Comparator<Point> byCoords = Comparator.comparingDouble(Point::getX)
+                .thenComparingDouble(Point::getY);
+
+        for (KDTree tree : new KDTree[]{new KDTree(points), new KDTree(points, true)}) {
+            for (int i = 0; i < 200; i++) {
+                // grid-aligned edges, so that some points lie on the boundary
+                Point a = getGridPoints(1, rnd).get(0);
+                Point b = getGridPoints(1, rnd).get(0);
+                double xMin = Math.min(a.getX(), b.getX());
+                double xMax = Math.max(a.getX(), b.getX());
+                double yMin = Math.min(a.getY(), b.getY());
+                double yMax = Math.max(a.getY(), b.getY());
+
+                List<Point> expected = new ArrayList<>();
+                for (Point p : points) {
+                    if (p.getX() >= xMin && p.getX() <= xMax
+                            && p.getY() >= yMin && p.getY() <= yMax) {
+                        expected.add(p);
+                    }
+                }
+                List<Point> actual = tree.range(xMin, xMax, yMin, yMax);
+                expected.sort(byCoords);
+                actual.sort(byCoords);
+                assertEquals(expected, actual);
+                assertEquals(expected.size(), tree.count(xMin, xMax, yMin, yMax));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRangeInvalid() {
+        KDTree tree = new KDTree(List.of(new Point(1, 1)));
+        tree.range(2, 1, 0, 1);
+    }
+
+    @Test
+    public void testAddRemove() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        List<Point> points = getGridPoints(2000, rnd);
+        KDTree tree = new KDTree(points, true);
+        // NaivePointSet reads the list it is given, so edits show through
+        List<Point> live = new ArrayList<>(points);
+        NaivePointSet nn = new NaivePointSet(live);
+
+        for (int i = 0; i < 20000; i++) {
+            int op = rnd.nextInt(3);
+            if (op == 0) {
+                Point p = getGridPoints(1, rnd).get(0);
+                tree.add(p);
+                live.add(p);
+            } else if (op == 1 && !live.isEmpty()) {
+                Point p = live.get(rnd.nextInt(live.size()));
+                assertTrue(tree.remove(p));
+                live.remove(p);
+            } else if (!live.isEmpty()) {
+                Point target = new Point(getRandomCoord(rnd), getRandomCoord(rnd));
+                assertEquals(Point.distance(target, nn.nearest(target.getX(), target.getY())),
+                        Point.distance(target, tree.nearest(target.getX(), target.getY())),
+                        1E-8);
+            }
+            assertEquals(live.size(), tree.size());
+        }
+
+        while (!live.isEmpty()) {
+            assertTrue(tree.remove(live.remove(live.size() - 1)));
+        }
+        assertEquals(0, tree.size());
+        assertFalse(tree.remove(points.get(0)));
+        assertEquals("{}", tree.toString());
+    }
+
+    @Test
+    public void testRemovedPointsAreNotReturned() {
+        List<Point> points = List.of(new Point(2, 3), new Point(4, 2), new Point(4, 5),
+                new Point(3, 3), new Point(1, 5), new Point(4, 4));
+        KDTree tree = new KDTree(points);
+
+        assertFalse(tree.remove(new Point(9, 9)));
+        assertTrue(tree.remove(new Point(1, 5)));
+        assertEquals(new Point(2, 3), tree.nearest(0, 7));
+        assertEquals(List.of(new Point(2, 3)), tree.kNearest(0, 7, 1));
+        assertEquals(0, tree.count(0, 1, 0, 10));
+        assertEquals(List.of(), tree.withinRadius(1, 5, 0.5));
+        assertEquals(6, tree.add(new Point(1, 5)));
+        assertEquals(6, tree.nearestIndex(0, 7));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNearestEmpty() {
+        KDTree tree = new KDTree(List.of(new Point(1, 1)));
+        tree.remove(new Point(1, 1));
+        tree.nearest(0, 0);
+    }
+
+    @Test
+    public void testAddSortedStaysShallow() {
+        // Without rebuilding, these would form a path of length 1E5.
+        KDTree tree = new KDTree(new ArrayList<>());
+        for (int i = 0; i < 1E5; i++) {
+            tree.add(new Point(i, 2 * i));
+        }
+        assertEquals(100000, tree.size());
+        assertEquals(new Point(500, 1000), tree.nearest(500.2, 1000.1));
+        assertEquals(new Point(99999, 199998), tree.nearest(1E6, 1E6));
+    }
+
     public static void main(String[] args) {
         jh61b.junit.TestRunner.runTests("all", KDTreeTest.class);
     }
@@ -40,6 +40,14 @@ public class NaiveMinPQ<T> implements ExtrinsicMinPQ<T> {
         return Collections.min(items).getItem();
     }
 
+    @Override
+    public double getSmallestPriority() {
+        if (size() == 0) {
+            throw new NoSuchElementException("PQ is empty");
+        }
+        return Collections.min(items).getPriority();
+    }
+
     @Override
     public T removeSmallest() {
         if (size() == 0) {
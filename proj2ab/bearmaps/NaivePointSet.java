@@ -1,5 +1,7 @@
 package bearmaps;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import static org.junit.Assert.*;
 import org.junit.Test;
@@ -22,6 +24,34 @@ public class NaivePointSet implements PointSet {
         return result;
     }
 
+    /** Returns the K points closest to the inputted coordinates, nearest
+      * first, or every point if there are fewer than K. */
+    public List<Point> kNearest(double x, double y, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be non-negative. Given: " + k + ".");
+        }
+        Point target = new Point(x, y);
+        List<Point> sorted = new ArrayList<>(points);
+        sorted.sort(Comparator.comparingDouble(pt -> Point.distance(pt, target)));
+        return new ArrayList<>(sorted.subList(0, Math.min(k, sorted.size())));
+    }
+
+    /** Returns every point within Euclidean distance R of the inputted
+      * coordinates, in list order. */
+    public List<Point> withinRadius(double x, double y, double r) {
+        if (r < 0) {
+            throw new IllegalArgumentException("Radius must be non-negative. Given: " + r + ".");
+        }
+        Point target = new Point(x, y);
+        List<Point> result = new ArrayList<>();
+        for (Point pt : points) {
+            if (Point.distance(pt, target) <= r * r) {
+                result.add(pt);
+            }
+        }
+        return result;
+    }
+
     public static class TestNaivePointSet {
         @Test
         public void test() {
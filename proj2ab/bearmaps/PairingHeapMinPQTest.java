@@ -0,0 +1,64 @@
+package bearmaps;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PairingHeapMinPQTest {
+
+    @Test
+    public void testExample() {
+        PairingHeapMinPQ<String> pq = new PairingHeapMinPQ<>(2);
+
+        String[] items = new String[]{"0th", "1st", "2nd", "3rd", "4th", "5th", "6th", "7th", "8th", "9th"};
+        int[] priorities = new int[]{1, 9, 5, 4, 8, 2, 3, 0, 7, 6};
+
+        for (int i = 0; i < items.length; i++) {
+            pq.add(items[i], priorities[i]);
+        }
+
+        assertEquals(10, pq.size());
+        assertEquals("7th", pq.removeSmallest());
+        assertEquals("0th", pq.removeSmallest());
+        assertEquals("5th", pq.removeSmallest());
+        assertEquals("6th", pq.removeSmallest());
+
+        assertTrue(pq.contains("3rd"));
+        assertFalse(pq.contains("7th"));
+
+        pq.changePriority("3rd", 8);
+        assertEquals("2nd", pq.getSmallest());
+
+        pq.changePriority("9th", -1);
+        assertEquals("9th", pq.removeSmallest());
+        assertEquals("2nd", pq.removeSmallest());
+    }
+
+    @Test
+    public void testIncreaseRootPriority() {
+        PairingHeapMinPQ<String> pq = new PairingHeapMinPQ<>();
+        pq.add("a", 1);
+        pq.add("b", 2);
+        pq.add("c", 3);
+        pq.changePriority("a", 10);
+        assertEquals("b", pq.removeSmallest());
+        assertEquals("c", pq.removeSmallest());
+        assertEquals("a", pq.removeSmallest());
+        assertEquals(0, pq.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddDuplicate() {
+        PairingHeapMinPQ<String> pq = new PairingHeapMinPQ<>();
+        pq.add("hi", 1);
+        pq.add("hi", 2);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        IndexedArrayHeapMinPQTest.checkRandomOperations(new PairingHeapMinPQ<>());
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", PairingHeapMinPQTest.class);
+    }
+}
@@ -24,7 +24,9 @@ public class Point {
      * i.e. there's no square root.
      */
     private static double distance(double x1, double x2, double y1, double y2) {
-        return Math.pow(x1 - x2, 2) + Math.pow(y1 - y2, 2);
+        double dx = x1 - x2;
+        double dy = y1 - y2;
+        return dx * dx + dy * dy;
     }
 
     /**
@@ -63,6 +63,36 @@ public class TimeArrayHeapMinPQ {
         printTimingTable(Ns, times, opCounts);
     }
 
+    /** Times building the PQ from parallel arrays with the bulk constructor. */
+    public static void timeArrayHeapMinPQBulkConstruction() {
+        ArrayList<Integer> Ns = new ArrayList<>();
+        ArrayList<Double> times = new ArrayList<>();
+        ArrayList<Integer> opCounts = new ArrayList<>();
+
+        long seed = 956;
+        Random rnd = new Random(seed);
+
+        for (int N = 31250; N <= 2_000_000; N *= 2) {
+            String[] items = new String[N];
+            double[] priorities = new double[N];
+            Iterator<Integer> rndInts = rnd.ints(0, 100_000_000).distinct().iterator();
+            for (int i = 0; i < N; i++) {
+                items[i] = "hi" + i;
+                priorities[i] = rndInts.next();
+            }
+
+            Stopwatch sw = new Stopwatch();
+            new ArrayHeapMinPQ<>(items, priorities);
+            double timeInSeconds = sw.elapsedTime();
+
+            Ns.add(N);
+            times.add(timeInSeconds);
+            opCounts.add(N);
+        }
+
+        printTimingTable(Ns, times, opCounts);
+    }
+
     public static void timeArrayHeapMinPQRemoveSmallest() {
         ArrayList<Integer> Ns = new ArrayList<>();
         ArrayList<Double> times = new ArrayList<>();
@@ -114,11 +144,177 @@ public class TimeArrayHeapMinPQ {
 
         printTimingTable(Ns, times, opCounts);
     }
+
+    /** Runs N adds, N changePriority calls and N removeSmallest calls on an
+      * ArrayHeapMinPQ and returns the elapsed time in seconds. */
+    private static double timeSiftWorkload(int N, boolean hotPath, long seed) {
+        Random rnd = new Random(seed);
+        ArrayHeapMinPQ<Integer> pq = new ArrayHeapMinPQ<>(hotPath);
+
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < N; i++) {
+            pq.add(i, rnd.nextDouble());
+        }
+        for (int i = 0; i < N; i++) {
+            pq.changePriority(i, rnd.nextDouble());
+        }
+        for (int i = 0; i < N; i++) {
+            pq.removeSmallest();
+        }
+        return sw.elapsedTime();
+    }
+
+    /** Compares the checked, recursive sifts against the hot-path ones. */
+    public static void timeArrayHeapMinPQSiftModes() {
+        long seed = 956;
+
+        System.out.printf("%12s %12s %14s %14s %10s\n", "N", "# ops", "checked (s)",
+                "hot path (s)", "speedup");
+        System.out.printf("------------------------------------------------------------------\n");
+        for (int N = 500_000; N <= 4_000_000; N *= 2) {
+            double checked = timeSiftWorkload(N, false, seed);
+            double hotPath = timeSiftWorkload(N, true, seed);
+            System.out.printf("%12d %12d %14.2f %14.2f %10.2f\n", N, 3 * N, checked, hotPath,
+                    checked / hotPath);
+        }
+    }
+
+    private static final int ADD = 0;
+    private static final int DECREASE = 1;
+    private static final int REMOVE = 2;
+
+    /** A recorded sequence of PQ operations, replayed against each PQ. */
+    private static class Trace {
+        private int[] ops;
+        private int[] items;
+        private double[] priorities;
+        private int length;
+    }
+
+    /** Records a Dijkstra-like trace over N items: every removal is followed
+      * by DECREASES_PER_REMOVE decrease-key calls on items still queued, plus
+      * one add while unseen items remain. */
+    private static Trace decreaseKeyTrace(int N, int decreasesPerRemove, Random rnd) {
+        Trace t = new Trace();
+        int capacity = N * (decreasesPerRemove + 3);
+        t.ops = new int[capacity];
+        t.items = new int[capacity];
+        t.priorities = new double[capacity];
+
+        IndexedArrayHeapMinPQ<Integer> pq = new IndexedArrayHeapMinPQ<>(N);
+        double[] current = new double[N];
+        int[] queued = new int[N];
+        int[] queuedPos = new int[N];
+        int numQueued = 0;
+        int nextItem = 0;
+
+        for (; nextItem < Math.min(N, 1000); nextItem++) {
+            current[nextItem] = rnd.nextDouble() * N;
+            pq.add(nextItem, current[nextItem]);
+            queuedPos[nextItem] = numQueued;
+            queued[numQueued++] = nextItem;
+            record(t, ADD, nextItem, current[nextItem]);
+        }
+
+        while (pq.size() > 0) {
+            int removed = pq.removeSmallest();
+            record(t, REMOVE, removed, 0);
+            int last = queued[--numQueued];
+            queued[queuedPos[removed]] = last;
+            queuedPos[last] = queuedPos[removed];
+
+            for (int j = 0; j < decreasesPerRemove && numQueued > 0; j++) {
+                int item = queued[rnd.nextInt(numQueued)];
+                current[item] -= rnd.nextDouble() * current[item] * 0.1;
+                pq.changePriority(item, current[item]);
+                record(t, DECREASE, item, current[item]);
+            }
+            if (nextItem < N) {
+                current[nextItem] = rnd.nextDouble() * N;
+                pq.add(nextItem, current[nextItem]);
+                queuedPos[nextItem] = numQueued;
+                queued[numQueued++] = nextItem;
+                record(t, ADD, nextItem, current[nextItem]);
+                nextItem++;
+            }
+        }
+        return t;
+    }
+
+    private static void record(Trace t, int op, int item, double priority) {
+        t.ops[t.length] = op;
+        t.items[t.length] = item;
+        t.priorities[t.length] = priority;
+        t.length++;
+    }
+
+    /** Replays trace T against PQ, using the boxed ITEMS, and returns the
+      * elapsed time in seconds. */
+    private static double replay(Trace t, ExtrinsicMinPQ<Integer> pq, Integer[] items) {
+        Stopwatch sw = new Stopwatch();
+        for (int i = 0; i < t.length; i++) {
+            switch (t.ops[i]) {
+                case ADD:
+                    pq.add(items[t.items[i]], t.priorities[i]);
+                    break;
+                case DECREASE:
+                    pq.changePriority(items[t.items[i]], t.priorities[i]);
+                    break;
+                default:
+                    pq.removeSmallest();
+            }
+        }
+        return sw.elapsedTime();
+    }
+
+    /** Compares every MinPQFactory type, and NaiveMinPQ for small N, on
+      * decrease-key-heavy traces. */
+    public static void timeDecreaseKeyHeavy() {
+        int decreasesPerRemove = 8;
+        int naiveLimit = 4000;
+        MinPQFactory.Type[] types = MinPQFactory.Type.values();
+
+        long seed = 956;
+        Random rnd = new Random(seed);
+
+        System.out.printf("%10s %12s", "N", "# ops");
+        System.out.printf(" %16s", "NAIVE");
+        for (MinPQFactory.Type type : types) {
+            System.out.printf(" %16s", type);
+        }
+        System.out.printf("\n");
+        System.out.printf("---------------------------------------------------------"
+                + "----------------------------------------------------\n");
+
+        for (int N = 1000; N <= 1_000_000; N *= 4) {
+            Trace t = decreaseKeyTrace(N, decreasesPerRemove, rnd);
+            Integer[] items = new Integer[N];
+            for (int i = 0; i < N; i++) {
+                items[i] = i;
+            }
+
+            System.out.printf("%10d %12d", N, t.length);
+            if (N <= naiveLimit) {
+                System.out.printf(" %16.3f", replay(t, new NaiveMinPQ<Integer>(), items));
+            } else {
+                System.out.printf(" %16s", "-");
+            }
+            for (MinPQFactory.Type type : types) {
+                System.out.printf(" %16.3f", replay(t, MinPQFactory.<Integer>create(type), items));
+            }
+            System.out.printf("\n");
+        }
+    }
+
     public static void main(String[] args) {
         System.out.println("Timing table for ArrayHeapMinPQ Construction");
         timeArrayHeapMinPQConstruction();
         System.out.println();
 
+        System.out.println("Timing table for ArrayHeapMinPQ bulk construction");
+        timeArrayHeapMinPQBulkConstruction();
+        System.out.println();
+
         System.out.println("Timing table for ArrayHeapMinPQ removeSmallest method");
         timeArrayHeapMinPQRemoveSmallest();
         System.out.println();
@@ -126,6 +322,14 @@ public class TimeArrayHeapMinPQ {
         System.out.println("Timing table for ArrayHeapMinPQ changePriority method");
         timeArrayHeapMinPQChangePriority();
         System.out.println();
+
+        System.out.println("Timing table for ArrayHeapMinPQ checked vs hot-path sifts");
+        timeArrayHeapMinPQSiftModes();
+        System.out.println();
+
+        System.out.println("Timing table (s) for decrease-key-heavy traces, by PQ type");
+        timeDecreaseKeyHeavy();
+        System.out.println();
     }
 }
 
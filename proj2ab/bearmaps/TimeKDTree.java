@@ -1,14 +1,22 @@
 package bearmaps;
 
 import java.util.List;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.Scanner;
 import edu.princeton.cs.algs4.Stopwatch;
 
 /**
  * Class that collects timing information about AList construction.
  */
 public class TimeKDTree {
+    /** Street graph nodes in the simple text format, relative to proj2ab. */
+    private static final String BERKELEY_NODES =
+            "../proj2c/bearmaps/proj2c/input/berkeley-street-data.simple";
+
     private static void printTimingTable(List<Integer> Ns, List<Double> times, List<Integer> opCounts) {
         System.out.printf("%12s %12s %12s %12s\n", "N", "time (s)", "# ops", "microsec/op");
         System.out.printf("------------------------------------------------------------\n");
@@ -39,6 +47,33 @@ public class TimeKDTree {
         return points;
     }
 
+    /** Generates N points on a diagonal line, sorted in both coordinates.
+      * Inserting these in order gives a tree that is a single path. */
+    private static List<Point> getSortedPoints(int N, Random rnd) {
+        ArrayList<Point> points = new ArrayList<>();
+        for (int i = 0; i < N; i++) {
+            double x = -1000.0 + 2000.0 * i / N;
+            double y = x + rnd.nextDouble() * 1000.0 / N;
+            points.add(new Point(x, y));
+        }
+        return points;
+    }
+
+    /** Generates N points in 50 tight Gaussian clusters, listed one cluster
+      * after another, much like nodes in an OSM extract. */
+    private static List<Point> getClusteredPoints(int N, Random rnd) {
+        int clusters = 50;
+        ArrayList<Point> points = new ArrayList<>();
+        for (int c = 0; c < clusters; c++) {
+            double cx = getRandomCoord(rnd);
+            double cy = getRandomCoord(rnd);
+            for (int i = c * N / clusters; i < (c + 1) * N / clusters; i++) {
+                points.add(new Point(cx + rnd.nextGaussian() * 10, cy + rnd.nextGaussian() * 10));
+            }
+        }
+        return points;
+    }
+
     /** Builds a KDTree of size N with random coordinates. */
     private static KDTree buildKDTree(int N, Random rnd) {
         List<Point> points = getRandomPoints(N, rnd);
@@ -132,6 +167,212 @@ public class TimeKDTree {
         printTimingTable(Ns, times, opCounts);
     }
 
+    /** Returns the time in seconds taken to answer QUERIES nearest queries
+      * against SET. Each query lands very close to a random one of POINTS,
+      * as clicks on a map land close to roads. */
+    private static double timeNearestQueries(PointSet set, List<Point> points, int queries,
+                                             Random rnd) {
+        double[] xs = new double[queries];
+        double[] ys = new double[queries];
+        for (int j = 0; j < queries; j++) {
+            Point p = points.get(rnd.nextInt(points.size()));
+            xs[j] = p.getX() + rnd.nextGaussian() * 1e-3;
+            ys[j] = p.getY() + rnd.nextGaussian() * 1e-3;
+        }
+
+        Stopwatch sw = new Stopwatch();
+        for (int j = 0; j < queries; j++) {
+            set.nearest(xs[j], ys[j]);
+        }
+        return sw.elapsedTime();
+    }
+
+    /** Compares insertion-order and balanced construction, and nearest query
+      * time on the resulting trees, for the given kind of input. Insertion
+      * into a degenerate tree may overflow the stack; that is reported
+      * rather than timed. */
+    public static void timeBalancedKDTree(String input) {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        int queries = 100_000;
+
+        System.out.printf("%10s %16s %16s %20s %20s\n", "N", "insert build (s)",
+                "median build (s)", "insert nearest (us)", "median nearest (us)");
+        System.out.printf("--------------------------------------------------"
+                + "--------------------------------------------\n");
+        for (int N = 4000; N <= 1_024_000; N *= 4) {
+            List<Point> points;
+            if (input.equals("sorted")) {
+                points = getSortedPoints(N, rnd);
+            } else if (input.equals("clustered")) {
+                points = getClusteredPoints(N, rnd);
+            } else {
+                points = getRandomPoints(N, rnd);
+            }
+
+            String insertBuild;
+            String insertNearest;
+            try {
+                Stopwatch sw = new Stopwatch();
+                KDTree tree = new KDTree(points);
+                insertBuild = String.format("%.3f", sw.elapsedTime());
+                double time = timeNearestQueries(tree, points, queries, rnd);
+                insertNearest = String.format("%.3f", time / queries * 1e6);
+            } catch (StackOverflowError e) {
+                insertBuild = "overflow";
+                insertNearest = "-";
+            }
+
+            Stopwatch sw = new Stopwatch();
+            KDTree balanced = new KDTree(points, true);
+            double balancedBuild = sw.elapsedTime();
+            double balancedNearest = timeNearestQueries(balanced, points, queries, rnd)
+                    / queries * 1e6;
+
+            System.out.printf("%10d %16s %16.3f %20s %20.3f\n", N, insertBuild, balancedBuild,
+                    insertNearest, balancedNearest);
+        }
+    }
+
+    /** Times random nearest queries and reports the average number of tree
+      * nodes each one visits, for insertion-order and median-built trees. */
+    public static void timeKDTreeNearestVisits() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        int queries = 1_000_000;
+
+        System.out.printf("%10s %16s %16s %16s %16s\n", "N", "insert (us)",
+                "insert visits", "median (us)", "median visits");
+        System.out.printf("------------------------------------------------"
+                + "------------------------------\n");
+        for (int N = 31250; N <= 1_000_000; N *= 2) {
+            List<Point> points = getRandomPoints(N, rnd);
+            System.out.printf("%10d", N);
+            for (KDTree tree : new KDTree[]{new KDTree(points), new KDTree(points, true)}) {
+                long visits = 0;
+                Stopwatch sw = new Stopwatch();
+                for (int j = 0; j < queries; j++) {
+                    tree.nearest(getRandomCoord(rnd), getRandomCoord(rnd));
+                    visits += tree.lastVisitedCount();
+                }
+                double timeInSeconds = sw.elapsedTime();
+                System.out.printf(" %16.3f %16.1f", timeInSeconds / queries * 1e6,
+                        (double) visits / queries);
+            }
+            System.out.printf("\n");
+        }
+    }
+
+    /** Compares nearest query time on a median-built KDTree and on a
+      * FlatKDTree over the same uniform points. */
+    public static void timeFlatKDTree() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        int queries = 1_000_000;
+
+        System.out.printf("%10s %20s %20s\n", "N", "KDTree nearest (us)",
+                "flat nearest (us)");
+        System.out.printf("----------------------------------------------------\n");
+        for (int N = 31250; N <= 1_000_000; N *= 2) {
+            List<Point> points = getRandomPoints(N, rnd);
+            KDTree tree = new KDTree(points, true);
+            FlatKDTree flat = new FlatKDTree(points);
+
+            double treeTime = timeNearestQueries(tree, points, queries, rnd);
+            double flatTime = timeNearestQueries(flat, points, queries, rnd);
+            System.out.printf("%10d %20.3f %20.3f\n", N, treeTime / queries * 1e6,
+                    flatTime / queries * 1e6);
+        }
+    }
+
+    /** Compares the throughput of a loop of nearestIndex calls with that of
+      * one batched nearestIndices call, for a million queries against a
+      * median-built KDTree. */
+    public static void timeBatchNearest() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+        int queries = 1_000_000;
+        double[] xs = new double[queries];
+        double[] ys = new double[queries];
+        for (int i = 0; i < queries; i++) {
+            xs[i] = getRandomCoord(rnd);
+            ys[i] = getRandomCoord(rnd);
+        }
+
+        System.out.printf("Threads available: %d\n", Runtime.getRuntime().availableProcessors());
+        System.out.printf("%10s %20s %20s %10s\n", "N", "loop (queries/s)",
+                "batch (queries/s)", "speedup");
+        System.out.printf("----------------------------------------------------------------\n");
+        for (int N = 31250; N <= 1_000_000; N *= 2) {
+            KDTree tree = new KDTree(getRandomPoints(N, rnd), true);
+
+            int[] loopResult = new int[queries];
+            Stopwatch sw = new Stopwatch();
+            for (int i = 0; i < queries; i++) {
+                loopResult[i] = tree.nearestIndex(xs[i], ys[i]);
+            }
+            double loopTime = sw.elapsedTime();
+
+            sw = new Stopwatch();
+            int[] batchResult = tree.nearestIndices(xs, ys);
+            double batchTime = sw.elapsedTime();
+
+            if (!Arrays.equals(loopResult, batchResult)) {
+                throw new IllegalStateException("Batch results differ from the loop.");
+            }
+            System.out.printf("%10d %20.0f %20.0f %10.2f\n", N, queries / loopTime,
+                    queries / batchTime, loopTime / batchTime);
+        }
+    }
+
+    /** Returns the (lon, lat) of every node in a street graph file in the
+      * simple format: a node count, then one "(id, lat, lon)" line per node. */
+    private static List<Point> getStreetNodePoints(String filename) {
+        List<Point> points = new ArrayList<>();
+        try {
+            Scanner in = new Scanner(new File(filename));
+            int n = Integer.parseInt(in.nextLine());
+            for (int i = 0; i < n; i++) {
+                String[] tokens = in.nextLine().replace("(", "").split("[,)]");
+                double lat = Double.parseDouble(tokens[1]);
+                double lon = Double.parseDouble(tokens[2]);
+                points.add(new Point(lon, lat));
+            }
+            in.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return points;
+    }
+
+    /** Prints the nearest query time of NaivePointSet, a median-built KDTree
+      * and a GridPointSet over POINTS, labelled LABEL. */
+    private static void timeGridRow(String label, List<Point> points, Random rnd) {
+        int naiveQueries = 10_000;
+        int queries = 1_000_000;
+        double naiveTime = timeNearestQueries(new NaivePointSet(points), points, naiveQueries, rnd);
+        double treeTime = timeNearestQueries(new KDTree(points, true), points, queries, rnd);
+        double gridTime = timeNearestQueries(new GridPointSet(points), points, queries, rnd);
+        System.out.printf("%20s %10d %14.3f %14.3f %14.3f\n", label, points.size(),
+                naiveTime / naiveQueries * 1e6, treeTime / queries * 1e6,
+                gridTime / queries * 1e6);
+    }
+
+    /** Compares nearest query time of NaivePointSet, KDTree and GridPointSet
+      * on the Berkeley street nodes and on uniform points. */
+    public static void timeGridPointSet() {
+        long seed = 956;
+        Random rnd = new Random(seed);
+
+        System.out.printf("%20s %10s %14s %14s %14s\n", "input", "N", "naive (us)",
+                "KDTree (us)", "grid (us)");
+        System.out.printf("----------------------------------------------------------------------------\n");
+        timeGridRow("berkeley nodes", getStreetNodePoints(BERKELEY_NODES), rnd);
+        for (int N = 31250; N <= 1_000_000; N *= 4) {
+            timeGridRow("uniform", getRandomPoints(N, rnd), rnd);
+        }
+    }
+
     public static void main(String[] args) {
         System.out.println("Timing table for Kd-Tree Construction");
         timeKDTreeConstruction();
@@ -144,5 +385,28 @@ public class TimeKDTree {
         System.out.println("Timing table for Kd-Tree Nearest");
         timeKDTreeNearest();
         System.out.println();
+
+        System.out.println("Timing table for Kd-Tree Nearest, with nodes visited per query");
+        timeKDTreeNearestVisits();
+        System.out.println();
+
+        for (String input : new String[]{"uniform", "sorted", "clustered"}) {
+            System.out.println("Timing table for insertion vs median-built Kd-Tree, "
+                    + input + " input");
+            timeBalancedKDTree(input);
+            System.out.println();
+        }
+
+        System.out.println("Timing table for Kd-Tree vs flat Kd-Tree nearest");
+        timeFlatKDTree();
+        System.out.println();
+
+        System.out.println("Timing table for looped vs batched Kd-Tree nearest");
+        timeBatchNearest();
+        System.out.println();
+
+        System.out.println("Timing table for naive vs Kd-Tree vs grid nearest");
+        timeGridPointSet();
+        System.out.println();
     }
 }
@@ -45,6 +45,16 @@ public class ArrayHeapMinPQ<T> implements ExtrinsicMinPQ<T> {
         return root().getItem();
     }
 
+    /* Returns the priority of the minimum item. Throws NoSuchElementException if the PQ
+     * is empty. */
+    @Override
+    public double getSmallestPriority() {
+        if (heap.isEmpty()) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        return root().getPriority();
+    }
+
     /* Removes and returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
     @Override
     public T removeSmallest() {
@@ -48,6 +48,14 @@ public class DoubleMapPQ<T> implements ExtrinsicMinPQ<T> {
         return getItem(itemsWithlowestPriority);
     }
 
+    @Override
+    public double getSmallestPriority() {
+        if (itemToPriority.size() == 0) {
+            throw new NoSuchElementException("PQ is empty.");
+        }
+        return priorityToItem.firstKey();
+    }
+
     @Override
     public T removeSmallest() {
         if (itemToPriority.size() == 0) {
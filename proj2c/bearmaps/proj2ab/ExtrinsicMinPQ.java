@@ -11,6 +11,8 @@ public interface ExtrinsicMinPQ<T> {
     boolean contains(T item);
     /* Returns the minimum item. */
     T getSmallest();
+    /* Returns the priority of the minimum item. */
+    double getSmallestPriority();
     /* Removes and returns the minimum item. */
     T removeSmallest();
     /* Changes the priority of the given item. Behavior undefined if the item doesn't exist. */
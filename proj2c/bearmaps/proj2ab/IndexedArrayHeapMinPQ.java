@@ -0,0 +1,234 @@
+package bearmaps.proj2ab;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.lang.IllegalArgumentException;
+
+/**
+ * ExtrinsicMinPQ backed entirely by primitive arrays. Every item is assigned a
+ * slot on insertion; its priority is stored in a double[] indexed by slot, the
+ * heap itself is an int[] of slots, and the inverse mapping from slot to heap
+ * position is kept in a second int[]. Items are located through an
+ * open-addressing hash index, so no per-node objects are ever allocated.
+ *
+ * The heap is binary by default. A wider heap (e.g. 4-ary) is shallower, which
+ * makes swim, and therefore decrease-key, cheaper at the cost of more
+ * comparisons per level in sink.
+ */
+public class IndexedArrayHeapMinPQ<T> implements ExtrinsicMinPQ<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Per-slot data. */
+    private Object[] items;
+    private double[] priorities;
+    private int[] positions;
+
+    /** Heap of slots, ordered by priority. */
+    private int[] heap;
+    private int size;
+    private final int arity;
+    private final int arityBits;
+
+    /** Slots released by removeSmallest, available for reuse. */
+    private int[] freeSlots;
+    private int numFree;
+    private int nextSlot;
+
+    private ItemIndex index;
+
+    public IndexedArrayHeapMinPQ() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /** Creates an empty binary heap with room for CAPACITY items before resizing. */
+    public IndexedArrayHeapMinPQ(int capacity) {
+        this(capacity, 2);
+    }
+
+    /** Creates an empty heap in which every node has up to ARITY children.
+      * ARITY must be a power of two. */
+    public IndexedArrayHeapMinPQ(int capacity, int arity) {
+        if (arity < 2 || Integer.bitCount(arity) != 1) {
+            throw new IllegalArgumentException(
+                    "Arity must be a power of two. Given: " + arity + ".");
+        }
+        this.arity = arity;
+        arityBits = Integer.numberOfTrailingZeros(arity);
+
+        capacity = Math.max(capacity, 1);
+        items = new Object[capacity];
+        priorities = new double[capacity];
+        positions = new int[capacity];
+        heap = new int[capacity];
+        freeSlots = new int[capacity];
+        numFree = 0;
+        nextSlot = 0;
+        size = 0;
+
+        index = new ItemIndex(capacity);
+    }
+
+    /** Adds a new item to the PQ with associated priority. */
+    @Override
+    public void add(T item, double priority) {
+        if (contains(item)) {
+            throw new IllegalArgumentException("Item already present.");
+        }
+        int slot = allocateSlot();
+        items[slot] = item;
+        priorities[slot] = priority;
+        index.put(item, slot);
+
+        heap[size] = slot;
+        positions[slot] = size;
+        size++;
+        swim(size - 1);
+    }
+
+    /* Returns true if the PQ contains the given item. */
+    @Override
+    public boolean contains(T item) {
+        return index.get(item) >= 0;
+    }
+
+    /* Returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getSmallest() {
+        if (size == 0) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        return (T) items[heap[0]];
+    }
+
+    /* Returns the priority of the minimum item. Throws NoSuchElementException if the PQ
+     * is empty. */
+    @Override
+    public double getSmallestPriority() {
+        if (size == 0) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        return priorities[heap[0]];
+    }
+
+    /* Removes and returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T removeSmallest() {
+        if (size == 0) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        int slot = heap[0];
+        T smallestItem = (T) items[slot];
+
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            sink(0);
+        }
+
+        index.remove(smallestItem);
+        items[slot] = null;
+        freeSlots[numFree] = slot;
+        numFree++;
+        return smallestItem;
+    }
+
+    /* Returns the number of items in the PQ. */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /* Changes the priority of the given item. Throws NoSuchElementException if the item
+     * doesn't exist. */
+    @Override
+    public void changePriority(T item, double priority) {
+        int slot = index.get(item);
+        if (slot < 0) {
+            throw new NoSuchElementException("Item not found.");
+        }
+        double oldPriority = priorities[slot];
+        priorities[slot] = priority;
+        if (priority < oldPriority) {
+            swim(positions[slot]);
+        } else {
+            sink(positions[slot]);
+        }
+    }
+
+    /** HELPER METHODS */
+
+    /** Lifts the slot at heap position POS up to its place, moving a hole
+      * upwards instead of swapping at every level. */
+    private void swim(int pos) {
+        int slot = heap[pos];
+        double priority = priorities[slot];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> arityBits;
+            int parentSlot = heap[parent];
+            if (priority >= priorities[parentSlot]) {
+                break;
+            }
+            heap[pos] = parentSlot;
+            positions[parentSlot] = pos;
+            pos = parent;
+        }
+        heap[pos] = slot;
+        positions[slot] = pos;
+    }
+
+    /** Drops the slot at heap position POS down to its place. */
+    private void sink(int pos) {
+        int slot = heap[pos];
+        double priority = priorities[slot];
+        while (true) {
+            int first = (pos << arityBits) + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + arity, size);
+            int child = first;
+            double childPriority = priorities[heap[first]];
+            for (int c = first + 1; c < last; c++) {
+                double p = priorities[heap[c]];
+                if (p < childPriority) {
+                    child = c;
+                    childPriority = p;
+                }
+            }
+            if (priority <= childPriority) {
+                break;
+            }
+            int childSlot = heap[child];
+            heap[pos] = childSlot;
+            positions[childSlot] = pos;
+            pos = child;
+        }
+        heap[pos] = slot;
+        positions[slot] = pos;
+    }
+
+    /** Returns a free slot, growing the per-slot arrays if necessary. */
+    private int allocateSlot() {
+        if (numFree > 0) {
+            numFree--;
+            return freeSlots[numFree];
+        }
+        if (nextSlot == items.length) {
+            resize(items.length * 2);
+        }
+        int slot = nextSlot;
+        nextSlot++;
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        items = Arrays.copyOf(items, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        heap = Arrays.copyOf(heap, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+}
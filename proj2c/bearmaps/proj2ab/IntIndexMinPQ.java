@@ -0,0 +1,189 @@
+package bearmaps.proj2ab;
+
+import java.util.NoSuchElementException;
+import java.lang.IllegalArgumentException;
+
+/**
+ * Int-keyed specialisation of ExtrinsicMinPQ for items that are dense
+ * indices in [0, capacity). Items are plain ints, so positions can be looked
+ * up directly in an array; no method allocates after construction.
+ *
+ * The heap is binary by default. As in IndexedArrayHeapMinPQ, a wider heap
+ * (e.g. 4-ary) is shallower, so decrease-key is cheaper.
+ */
+public class IntIndexMinPQ implements IntMinPQ {
+    private final double[] priorities;
+    private final int[] heap;
+    private final int[] positions;
+    private final int arity;
+    private final int arityBits;
+    private int size;
+
+    /** Creates an empty binary heap that accepts items 0 through CAPACITY - 1. */
+    public IntIndexMinPQ(int capacity) {
+        this(capacity, 2);
+    }
+
+    /** Creates an empty heap that accepts items 0 through CAPACITY - 1 and in
+      * which every node has up to ARITY children. ARITY must be a power of two. */
+    public IntIndexMinPQ(int capacity, int arity) {
+        if (arity < 2 || Integer.bitCount(arity) != 1) {
+            throw new IllegalArgumentException(
+                    "Arity must be a power of two. Given: " + arity + ".");
+        }
+        this.arity = arity;
+        arityBits = Integer.numberOfTrailingZeros(arity);
+        priorities = new double[capacity];
+        heap = new int[capacity];
+        positions = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            positions[i] = -1;
+        }
+        size = 0;
+    }
+
+    /* Adds an item with the given priority value. Throws an
+     * IllegalArgumentException if item is already present. */
+    @Override
+    public void add(int item, double priority) {
+        if (contains(item)) {
+            throw new IllegalArgumentException("Item already present.");
+        }
+        priorities[item] = priority;
+        heap[size] = item;
+        positions[item] = size;
+        size++;
+        swim(size - 1);
+    }
+
+    /* Returns true if the PQ contains the given item. */
+    @Override
+    public boolean contains(int item) {
+        validateItem(item);
+        return positions[item] >= 0;
+    }
+
+    /* Returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
+    @Override
+    public int getSmallest() {
+        if (size == 0) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        return heap[0];
+    }
+
+    /* Returns the priority of the minimum item. Throws NoSuchElementException if the PQ
+     * is empty. */
+    @Override
+    public double getSmallestPriority() {
+        return priorities[getSmallest()];
+    }
+
+    /* Removes and returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
+    @Override
+    public int removeSmallest() {
+        if (size == 0) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        int smallest = heap[0];
+        positions[smallest] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            sink(0);
+        }
+        return smallest;
+    }
+
+    /* Removes every item, in time proportional to the number of items. */
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /* Returns the number of items in the PQ. */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /* Changes the priority of the given item. Throws NoSuchElementException if the item
+     * doesn't exist. */
+    @Override
+    public void changePriority(int item, double priority) {
+        if (!contains(item)) {
+            throw new NoSuchElementException("Item not found.");
+        }
+        double oldPriority = priorities[item];
+        priorities[item] = priority;
+        if (priority < oldPriority) {
+            swim(positions[item]);
+        } else {
+            sink(positions[item]);
+        }
+    }
+
+    /** HELPER METHODS */
+
+    /** Throws an exception if the item is not in the valid range. */
+    private void validateItem(int item) {
+        if (item < 0 || item >= positions.length) {
+            throw new IllegalArgumentException(
+                    "Invalid item. Must be between 0 and " + (positions.length - 1)
+                    + ". Given: " + item + ".");
+        }
+    }
+
+    /** Lifts the item at heap position POS up to its place. */
+    private void swim(int pos) {
+        int item = heap[pos];
+        double priority = priorities[item];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> arityBits;
+            int parentItem = heap[parent];
+            if (priority >= priorities[parentItem]) {
+                break;
+            }
+            heap[pos] = parentItem;
+            positions[parentItem] = pos;
+            pos = parent;
+        }
+        heap[pos] = item;
+        positions[item] = pos;
+    }
+
+    /** Drops the item at heap position POS down to its place. */
+    private void sink(int pos) {
+        int item = heap[pos];
+        double priority = priorities[item];
+        while (true) {
+            int first = (pos << arityBits) + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + arity, size);
+            int child = first;
+            double childPriority = priorities[heap[first]];
+            for (int c = first + 1; c < last; c++) {
+                double p = priorities[heap[c]];
+                if (p < childPriority) {
+                    child = c;
+                    childPriority = p;
+                }
+            }
+            if (priority <= childPriority) {
+                break;
+            }
+            int childItem = heap[child];
+            heap[pos] = childItem;
+            positions[childItem] = pos;
+            pos = child;
+        }
+        heap[pos] = item;
+        positions[item] = pos;
+    }
+}
@@ -0,0 +1,27 @@
+package bearmaps.proj2ab;
+/**
+ * Int-keyed counterpart of ExtrinsicMinPQ, for items that are dense indices
+ * in [0, capacity) fixed at construction. Implementations allocate nothing
+ * after construction, so a search can keep one and clear it between queries.
+ */
+public interface IntMinPQ {
+    /* Adds an item with the given priority value. Throws an
+     * IllegalArgumentException if item is already present or out of range. */
+    void add(int item, double priority);
+    /* Returns true if the PQ contains the given item. */
+    boolean contains(int item);
+    /* Returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
+    int getSmallest();
+    /* Returns the priority of the minimum item. Throws NoSuchElementException if the PQ
+     * is empty. */
+    double getSmallestPriority();
+    /* Removes and returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
+    int removeSmallest();
+    /* Returns the number of items in the PQ. */
+    int size();
+    /* Changes the priority of the given item. Throws NoSuchElementException if the item
+     * doesn't exist. */
+    void changePriority(int item, double priority);
+    /* Removes every item, in time proportional to the number of items. */
+    void clear();
+}
@@ -0,0 +1,94 @@
+package bearmaps.proj2ab;
+
+/**
+ * Open-addressing (linear probing) hash index from items to int values.
+ * Used by the array-backed PQs in place of a HashMap<T, Integer> so that
+ * lookups and updates allocate nothing.
+ */
+class ItemIndex {
+    private Object[] keys;
+    private int[] values;
+    private int size;
+    private int shift;
+
+    /** Creates an empty index that can hold EXPECTED items before resizing. */
+    ItemIndex(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 1) * 2 - 1) << 1;
+        keys = new Object[Math.max(capacity, 2)];
+        values = new int[keys.length];
+        shift = Integer.numberOfLeadingZeros(keys.length) + 1;
+        size = 0;
+    }
+
+    /** Returns the value stored for ITEM, or -1 if ITEM is not indexed. */
+    int get(Object item) {
+        int mask = keys.length - 1;
+        for (int i = start(item); keys[i] != null; i = (i + 1) & mask) {
+            if (keys[i].equals(item)) {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    /** Stores VALUE for ITEM. Assumes ITEM is not yet indexed. */
+    void put(Object item, int value) {
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        insert(item, value);
+        size++;
+    }
+
+    /** Removes ITEM, shifting back any entries that probed past it so that
+      * lookups never stop at a stale gap. Assumes ITEM is indexed. */
+    void remove(Object item) {
+        int mask = keys.length - 1;
+        int i = start(item);
+        while (!keys[i].equals(item)) {
+            i = (i + 1) & mask;
+        }
+        int gap = i;
+        i = (i + 1) & mask;
+        while (keys[i] != null) {
+            int home = start(keys[i]);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[gap] = null;
+        size--;
+    }
+
+    /** Maps the hash code of ITEM onto the table using the high bits of a
+      * Fibonacci multiplication. */
+    private int start(Object item) {
+        return (item.hashCode() * 0x9E3779B9) >>> shift;
+    }
+
+    private void insert(Object item, int value) {
+        int mask = keys.length - 1;
+        int i = start(item);
+        while (keys[i] != null) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = item;
+        values[i] = value;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new Object[capacity];
+        values = new int[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package bearmaps.proj2ab;
+
+/**
+ * Creates ExtrinsicMinPQs by type, so that clients such as shortest paths
+ * solvers can choose the implementation best suited to their workload.
+ * Every type but ARRAY_HEAP also has an int-keyed form, from createIndexed.
+ */
+public class MinPQFactory {
+    public enum Type {
+        /** The original node-based binary heap, ArrayHeapMinPQ. */
+        ARRAY_HEAP,
+        /** Primitive-array binary heap. */
+        BINARY_HEAP,
+        /** Primitive-array 4-ary heap; shallower, so cheaper decrease-key. */
+        QUATERNARY_HEAP,
+        /** Pairing heap; decrease-key is a cut and a single link. */
+        PAIRING_HEAP
+    }
+
+    /** The type used when a client does not ask for one. */
+    public static final Type DEFAULT = Type.BINARY_HEAP;
+
+    private MinPQFactory() {}
+
+    /** Returns a new, empty PQ of the given TYPE. */
+    public static <T> ExtrinsicMinPQ<T> create(Type type) {
+        switch (type) {
+            case ARRAY_HEAP:
+                return new ArrayHeapMinPQ<T>();
+            case BINARY_HEAP:
+                return new IndexedArrayHeapMinPQ<T>();
+            case QUATERNARY_HEAP:
+                return new IndexedArrayHeapMinPQ<T>(16, 4);
+            case PAIRING_HEAP:
+                return new PairingHeapMinPQ<T>();
+            default:
+                throw new IllegalArgumentException("Unknown PQ type: " + type);
+        }
+    }
+
+    /**
+     * Returns a new, empty int-keyed PQ of the given TYPE for items 0 through
+     * CAPACITY - 1. Throws an IllegalArgumentException for ARRAY_HEAP, which
+     * is node-based and has no int-keyed form.
+     */
+    public static IntMinPQ createIndexed(Type type, int capacity) {
+        switch (type) {
+            case BINARY_HEAP:
+                return new IntIndexMinPQ(capacity);
+            case QUATERNARY_HEAP:
+                return new IntIndexMinPQ(capacity, 4);
+            case PAIRING_HEAP:
+                return new IntPairingHeapMinPQ(capacity);
+            default:
+                throw new IllegalArgumentException("No int-keyed PQ of type: " + type);
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package bearmaps.proj2ab;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.lang.IllegalArgumentException;
+
+/**
+ * ExtrinsicMinPQ implemented as a pairing heap. Decreasing a priority only
+ * cuts the item's subtree and links it back to the root, so workloads
+ * dominated by decrease-key avoid the log n swim of an array heap.
+ *
+ * Like IndexedArrayHeapMinPQ, every item is assigned a slot and the tree is
+ * stored in int[] child / sibling / prev arrays indexed by slot. prev holds
+ * the left sibling, or the parent for a first child, and -1 for the root.
+ */
+public class PairingHeapMinPQ<T> implements ExtrinsicMinPQ<T> {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NONE = -1;
+
+    /** Per-slot data. */
+    private Object[] items;
+    private double[] priorities;
+    private int[] child;
+    private int[] sibling;
+    private int[] prev;
+
+    private int root;
+    private int size;
+
+    /** Slots released by removeSmallest, available for reuse. */
+    private int[] freeSlots;
+    private int numFree;
+    private int nextSlot;
+
+    private ItemIndex index;
+
+    public PairingHeapMinPQ() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /** Creates an empty PQ with room for CAPACITY items before resizing. */
+    public PairingHeapMinPQ(int capacity) {
+        capacity = Math.max(capacity, 1);
+        items = new Object[capacity];
+        priorities = new double[capacity];
+        child = new int[capacity];
+        sibling = new int[capacity];
+        prev = new int[capacity];
+        freeSlots = new int[capacity];
+        numFree = 0;
+        nextSlot = 0;
+        root = NONE;
+        size = 0;
+
+        index = new ItemIndex(capacity);
+    }
+
+    /** Adds a new item to the PQ with associated priority. */
+    @Override
+    public void add(T item, double priority) {
+        if (contains(item)) {
+            throw new IllegalArgumentException("Item already present.");
+        }
+        int slot = allocateSlot();
+        items[slot] = item;
+        priorities[slot] = priority;
+        child[slot] = NONE;
+        sibling[slot] = NONE;
+        prev[slot] = NONE;
+        index.put(item, slot);
+
+        root = link(root, slot);
+        size++;
+    }
+
+    /* Returns true if the PQ contains the given item. */
+    @Override
+    public boolean contains(T item) {
+        return index.get(item) >= 0;
+    }
+
+    /* Returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T getSmallest() {
+        if (size == 0) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        return (T) items[root];
+    }
+
+    /* Returns the priority of the minimum item. Throws NoSuchElementException if the PQ
+     * is empty. */
+    @Override
+    public double getSmallestPriority() {
+        if (size == 0) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        return priorities[root];
+    }
+
+    /* Removes and returns the minimum item. Throws NoSuchElementException if the PQ is empty. */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T removeSmallest() {
+        if (size == 0) {
+            throw new NoSuchElementException("The PQ is empty.");
+        }
+        int slot = root;
+        T smallestItem = (T) items[slot];
+        root = mergePairs(child[slot]);
+        size--;
+
+        index.remove(smallestItem);
+        items[slot] = null;
+        freeSlots[numFree] = slot;
+        numFree++;
+        return smallestItem;
+    }
+
+    /* Returns the number of items in the PQ. */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /* Changes the priority of the given item. Throws NoSuchElementException if the item
+     * doesn't exist. */
+    @Override
+    public void changePriority(T item, double priority) {
+        int slot = index.get(item);
+        if (slot < 0) {
+            throw new NoSuchElementException("Item not found.");
+        }
+        double oldPriority = priorities[slot];
+        if (priority < oldPriority) {
+            /* Decrease-key: the subtree stays heap-ordered, so just move it. */
+            priorities[slot] = priority;
+            if (slot != root) {
+                cut(slot);
+                root = link(root, slot);
+            }
+        } else if (priority > oldPriority) {
+            /* Increase-key: detach the children, then reinsert the item alone. */
+            int children = child[slot];
+            child[slot] = NONE;
+            if (slot == root) {
+                root = mergePairs(children);
+            } else {
+                cut(slot);
+                root = link(root, mergePairs(children));
+            }
+            priorities[slot] = priority;
+            root = link(root, slot);
+        }
+    }
+
+    /** HELPER METHODS */
+
+    /** Links two detached trees and returns the root of the result. The
+      * root with the larger priority becomes the first child of the other;
+      * on ties A stays the root. */
+    private int link(int a, int b) {
+        if (a == NONE) {
+            return b;
+        }
+        if (b == NONE) {
+            return a;
+        }
+        if (priorities[b] < priorities[a]) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+        int first = child[a];
+        sibling[b] = first;
+        if (first != NONE) {
+            prev[first] = b;
+        }
+        prev[b] = a;
+        child[a] = b;
+        return a;
+    }
+
+    /** Detaches the subtree rooted at SLOT from its parent and siblings. */
+    private void cut(int slot) {
+        int p = prev[slot];
+        int next = sibling[slot];
+        if (child[p] == slot) {
+            child[p] = next;
+        } else {
+            sibling[p] = next;
+        }
+        if (next != NONE) {
+            prev[next] = p;
+        }
+        sibling[slot] = NONE;
+        prev[slot] = NONE;
+    }
+
+    /** Merges the sibling list starting at FIRST into a single tree using the
+      * standard two-pass scheme and returns its root. Pairs are linked left
+      * to right, then the results are linked right to left. */
+    private int mergePairs(int first) {
+        if (first == NONE) {
+            return NONE;
+        }
+        /* First pass: link adjacent pairs, chaining the winners in reverse
+         * order through their (now unused) sibling fields. */
+        int pairs = NONE;
+        int a = first;
+        while (a != NONE) {
+            int b = sibling[a];
+            int next = b == NONE ? NONE : sibling[b];
+            prev[a] = NONE;
+            sibling[a] = NONE;
+            if (b != NONE) {
+                prev[b] = NONE;
+                sibling[b] = NONE;
+                a = link(a, b);
+            }
+            sibling[a] = pairs;
+            pairs = a;
+            a = next;
+        }
+        /* Second pass: fold the winners, last pair first. */
+        int result = pairs;
+        int rest = sibling[result];
+        sibling[result] = NONE;
+        while (rest != NONE) {
+            int next = sibling[rest];
+            sibling[rest] = NONE;
+            result = link(result, rest);
+            rest = next;
+        }
+        prev[result] = NONE;
+        return result;
+    }
+
+    /** Returns a free slot, growing the per-slot arrays if necessary. */
+    private int allocateSlot() {
+        if (numFree > 0) {
+            numFree--;
+            return freeSlots[numFree];
+        }
+        if (nextSlot == items.length) {
+            resize(items.length * 2);
+        }
+        int slot = nextSlot;
+        nextSlot++;
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        items = Arrays.copyOf(items, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        child = Arrays.copyOf(child, capacity);
+        sibling = Arrays.copyOf(sibling, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+}
@@ -2,14 +2,18 @@ package bearmaps.proj2c;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.function.IntToDoubleFunction;
 import edu.princeton.cs.algs4.Stopwatch;
-import bearmaps.proj2ab.ArrayHeapMinPQ;
+import bearmaps.proj2ab.ExtrinsicMinPQ;
+import bearmaps.proj2ab.IntMinPQ;
+import bearmaps.proj2ab.MinPQFactory;
 
 public class AStarSolver<Vertex> implements ShortestPathsSolver<Vertex> {
     private HashMap<Vertex, Double> distTo;
     private HashMap<Vertex, WeightedEdge<Vertex>> edgeTo;
-    private ArrayHeapMinPQ<Vertex> fringe;
+    private ExtrinsicMinPQ<Vertex> fringe;
     private AStarGraph<Vertex> graph;
     private Vertex origin;
     private Vertex goal;
@@ -19,37 +23,177 @@ public class AStarSolver<Vertex> implements ShortestPathsSolver<Vertex> {
     private double solutionWeight;
     private double timeSpent;
 
+    /* The solution as dense indices, for indexed graphs, and the distance
+     * from the start to each of its vertices. solution is built from the
+     * indices only when asked for. */
+    private int[] solutionIndices = new int[0];
+    private double[] solutionDistances = new double[0];
+
+    /* After a TIMEOUT, the path to the explored vertex estimated closest to
+     * the goal. */
+    private List<Vertex> partialSolution = new ArrayList<Vertex>();
+
+    /* Array-backed state, used instead of the maps when the graph is indexed.
+     * The workspace holds distances, parents and the fringe by dense index. */
+    private IndexedAStarGraph<Vertex> indexedGraph;
+    private CompactAStarGraph<Vertex> compactGraph;
+    private SearchWorkspace workspace;
+    private IntMinPQ indexedFringe;
+    private IntToDoubleFunction compactHeuristic;
+
     public AStarSolver(AStarGraph<Vertex> input, Vertex start, Vertex end, double timeout) {
+        this(input, start, end, timeout, MinPQFactory.DEFAULT);
+    }
+
+    /**
+     * Solves using a fringe of the given FRINGETYPE. For a graph that
+     * implements IndexedAStarGraph, the fringe is the int-keyed PQ of that
+     * type in the calling thread's SearchWorkspace. ARRAY_HEAP has no
+     * int-keyed form, so with it the search keeps its state in hash maps, as
+     * it does for any other graph.
+     */
+    public AStarSolver(AStarGraph<Vertex> input, Vertex start, Vertex end, double timeout,
+                       MinPQFactory.Type fringeType) {
+        this(input, start, end, new SearchDeadline(timeout), fringeType, null);
+    }
+
+    /**
+     * Solves until DEADLINE expires or is cancelled, in which case the
+     * outcome is TIMEOUT and partialSolution() holds the progress made.
+     */
+    public AStarSolver(AStarGraph<Vertex> input, Vertex start, Vertex end,
+                       SearchDeadline deadline) {
+        this(input, start, end, deadline, MinPQFactory.DEFAULT, null);
+    }
+
+    /**
+     * Solves an IndexedAStarGraph using the arrays of WORKSPACE, which must
+     * hold at least input.numVertices() vertices and not be in use by another
+     * search.
+     */
+    public AStarSolver(IndexedAStarGraph<Vertex> input, Vertex start, Vertex end, double timeout,
+                       SearchWorkspace workspace) {
+        this(input, start, end, new SearchDeadline(timeout), MinPQFactory.DEFAULT, workspace);
+    }
+
+    private AStarSolver(AStarGraph<Vertex> input, Vertex start, Vertex end, SearchDeadline deadline,
+                        MinPQFactory.Type fringeType, SearchWorkspace workspace) {
         Stopwatch sw = new Stopwatch();
 
         // initialise instance variables
-        distTo = new HashMap<Vertex, Double>();
-        edgeTo= new HashMap<Vertex, WeightedEdge<Vertex>>();
-        fringe = new ArrayHeapMinPQ<Vertex>();
         graph = input;
         origin = start;
         goal = end;
         numStatesExplored = 0;
-        solution = new ArrayList<Vertex>();
         solutionWeight = 0;
 
+        if (input instanceof IndexedAStarGraph) {
+            indexedGraph = (IndexedAStarGraph<Vertex>) input;
+        }
+        if (indexedGraph != null && fringeType != MinPQFactory.Type.ARRAY_HEAP) {
+            if (input instanceof CompactAStarGraph) {
+                compactGraph = (CompactAStarGraph<Vertex>) input;
+            }
+            this.workspace = workspace != null ? workspace
+                    : SearchWorkspace.forThisThread(indexedGraph.numVertices());
+            solveIndexed(deadline, fringeType);
+            // The workspace goes back to its owner for the next search.
+            this.workspace = null;
+            indexedFringe = null;
+        } else {
+            solution = new ArrayList<Vertex>();
+            solve(deadline, fringeType);
+        }
+        timeSpent = sw.elapsedTime();
+    }
+
+    public SolverOutcome outcome() {
+        return outcome;
+    }
+
+    public List<Vertex> solution() {
+        if (solution == null) {
+            solution = new ArrayList<Vertex>(solutionIndices.length);
+            for (int index : solutionIndices) {
+                solution.add(indexedGraph.vertexAt(index));
+            }
+        }
+        return solution;
+    }
+
+    /**
+     * Returns the solution as the graph's dense vertex indices, from start
+     * to end, without creating Vertex objects. Throws an
+     * IllegalStateException if the graph is not an IndexedAStarGraph.
+     */
+    public int[] solutionIndices() {
+        if (indexedGraph == null) {
+            throw new IllegalStateException("The graph is not indexed.");
+        }
+        return solutionIndices;
+    }
+
+    /** Returns the distance along the solution from the start to each of its
+      * vertices; the last entry is solutionWeight(). */
+    public double[] solutionDistances() {
+        return solutionDistances;
+    }
+
+    /**
+     * Returns, if the search timed out, the path from the start to the
+     * explored vertex with the smallest estimated distance to the goal.
+     * Empty for any other outcome.
+     */
+    public List<Vertex> partialSolution() {
+        return partialSolution;
+    }
+
+    public double solutionWeight() {
+        return solutionWeight;
+    }
+
+    public int numStatesExplored() {
+        return numStatesExplored;
+    }
+
+    public double explorationTime() {
+        return timeSpent;
+    }
+
+    /* HELPER METHODS */
+
+    /** Runs A* keeping per-vertex state in hash maps. */
+    private void solve(SearchDeadline deadline, MinPQFactory.Type fringeType) {
+        distTo = new HashMap<Vertex, Double>();
+        edgeTo = new HashMap<Vertex, WeightedEdge<Vertex>>();
+        fringe = MinPQFactory.create(fringeType);
+
         // add origin
         distTo.put(origin, 0.0);
         fringe.add(origin, graph.estimatedDistanceToGoal(origin, goal));
+        Vertex closest = origin;
+        double closestEstimate = Double.POSITIVE_INFINITY;
 
         while (fringe.size() > 0) {
-            if (sw.elapsedTime() > timeout) {
+            if (deadline.expiredAt(numStatesExplored)) {
                 outcome = SolverOutcome.TIMEOUT;
-                timeSpent = sw.elapsedTime();
+                generateSolution(closest);
+                keepAsPartial();
                 return;
             }
 
+            // A vertex's priority is its distance plus its estimate.
+            double estimate = fringe.getSmallestPriority();
             Vertex p = fringe.removeSmallest();
+            estimate -= distTo.get(p);
+            if (estimate < closestEstimate) {
+                closest = p;
+                closestEstimate = estimate;
+            }
 
             if (p.equals(goal)) {
-                generateSolution();
+                generateSolution(goal);
                 outcome = SolverOutcome.SOLVED;
-                timeSpent = sw.elapsedTime();
                 return;
             }
 
@@ -62,49 +206,127 @@ public class AStarSolver<Vertex> implements ShortestPathsSolver<Vertex> {
             numStatesExplored++;
         }
 
-        timeSpent = sw.elapsedTime();
         outcome = SolverOutcome.UNSOLVABLE;
     }
 
-    public SolverOutcome outcome() {
-        return outcome;
-    }
+    /** Runs A* keeping per-vertex state in the workspace, addressed by the
+      * graph's dense vertex index. Edges of a CompactAStarGraph are read
+      * straight from its arrays, without creating WeightedEdges. */
+    private void solveIndexed(SearchDeadline deadline, MinPQFactory.Type fringeType) {
+        workspace.begin(fringeType);
+        indexedFringe = workspace.fringe();
 
-    public List<Vertex> solution() {
-        return solution;
-    }
+        int originIndex = indexedGraph.indexOf(origin);
+        int goalIndex = indexedGraph.indexOf(goal);
+        if (compactGraph != null) {
+            compactHeuristic = compactGraph.heuristicTo(goalIndex);
+        }
 
-    public double solutionWeight() {
-        return solutionWeight;
-    }
+        // add origin
+        workspace.reach(originIndex, 0.0, originIndex);
+        indexedFringe.add(originIndex, graph.estimatedDistanceToGoal(origin, goal));
+        int closest = originIndex;
+        double closestEstimate = Double.POSITIVE_INFINITY;
 
-    public int numStatesExplored() {
-        return numStatesExplored;
-    }
+        while (indexedFringe.size() > 0) {
+            if (deadline.expiredAt(numStatesExplored)) {
+                outcome = SolverOutcome.TIMEOUT;
+                generateIndexedSolution(originIndex, closest);
+                keepAsPartial();
+                return;
+            }
 
-    public double explorationTime() {
-        return timeSpent;
-    }
+            // A vertex's priority is its distance plus its estimate.
+            double estimate = indexedFringe.getSmallestPriority();
+            int p = indexedFringe.removeSmallest();
+            estimate -= workspace.distTo(p);
+            if (estimate < closestEstimate) {
+                closest = p;
+                closestEstimate = estimate;
+            }
 
-    /* HELPER METHODS */
+            if (p == goalIndex) {
+                generateIndexedSolution(originIndex, goalIndex);
+                outcome = SolverOutcome.SOLVED;
+                return;
+            }
 
-    private void generateSolution(Vertex p) {
-        if (p.equals(origin)) {
-            return;
+            if (compactGraph != null) {
+                int end = compactGraph.edgeOffset(p + 1);
+                for (int e = compactGraph.edgeOffset(p); e < end; e++) {
+                    int q = compactGraph.edgeTarget(e);
+                    relaxIndexed(p, q, compactGraph.edgeWeight(e), goalIndex);
+                }
+            } else {
+                List<WeightedEdge<Vertex>> edges = graph.neighbors(indexedGraph.vertexAt(p));
+
+                for (WeightedEdge<Vertex> e : edges) {
+                    int q = indexedGraph.indexOf(e.to());
+                    relaxIndexed(p, q, e.weight(), goalIndex);
+                }
+            }
+
+            numStatesExplored++;
         }
 
-        WeightedEdge<Vertex> e = edgeTo.get(p);
-        Vertex prev = e.from();
+        outcome = SolverOutcome.UNSOLVABLE;
+    }
 
-        generateSolution(prev);
+    /** Walks edgeTo back from TARGET to the origin, without recursion,
+      * then puts the path in order. */
+    private void generateSolution(Vertex target) {
+        List<Double> weights = new ArrayList<>();
+        Vertex p = target;
+        while (!p.equals(origin)) {
+            WeightedEdge<Vertex> e = edgeTo.get(p);
+            solution.add(p);
+            weights.add(e.weight());
+            p = e.from();
+        }
+        solution.add(origin);
+        Collections.reverse(solution);
+        Collections.reverse(weights);
+
+        solutionDistances = new double[solution.size()];
+        for (int i = 0; i < weights.size(); i++) {
+            solutionWeight += weights.get(i);
+            solutionDistances[i + 1] = solutionWeight;
+        }
+
+        if (indexedGraph != null) {
+            solutionIndices = new int[solution.size()];
+            for (int i = 0; i < solutionIndices.length; i++) {
+                solutionIndices[i] = indexedGraph.indexOf(solution.get(i));
+            }
+        }
+    }
 
-        solution.add(prev);
-        solutionWeight += e.weight();
+    /** Walks the workspace's parents back from TARGETINDEX to ORIGININDEX,
+      * filling the path from its end. */
+    private void generateIndexedSolution(int originIndex, int targetIndex) {
+        solutionWeight = workspace.distTo(targetIndex);
+        int length = 1;
+        for (int p = targetIndex; p != originIndex; p = workspace.parent(p)) {
+            length++;
+        }
+        solutionIndices = new int[length];
+        solutionDistances = new double[length];
+        int p = targetIndex;
+        for (int i = length - 1; i >= 0; i--) {
+            solutionIndices[i] = p;
+            solutionDistances[i] = workspace.distTo(p);
+            p = workspace.parent(p);
+        }
     }
 
-    private void generateSolution() {
-        generateSolution(goal);
-        solution.add(goal);
+    /** Moves the path just generated to partialSolution, leaving the
+      * solution empty as a timed out search's should be. */
+    private void keepAsPartial() {
+        partialSolution = solution();
+        solution = new ArrayList<Vertex>();
+        solutionIndices = new int[0];
+        solutionDistances = new double[0];
+        solutionWeight = 0;
     }
 
     private void relax(WeightedEdge<Vertex> e) {
@@ -128,4 +350,24 @@ public class AStarSolver<Vertex> implements ShortestPathsSolver<Vertex> {
             }
         }
     }
+
+    /** Relaxes the edge of weight W from P to Q, both dense indices. */
+    private void relaxIndexed(int p, int q, double w, int goalIndex) {
+        double newDist = workspace.distTo(p) + w;
+
+        if (newDist < workspace.distTo(q)) {
+            workspace.reach(q, newDist, p);
+
+            double heuristic = compactGraph != null
+                    ? compactHeuristic.applyAsDouble(q)
+                    : graph.estimatedDistanceToGoal(indexedGraph.vertexAt(q), goal);
+            double newPriority = newDist + heuristic;
+
+            if (indexedFringe.contains(q)) {
+                indexedFringe.changePriority(q, newPriority);
+            } else {
+                indexedFringe.add(q, newPriority);
+            }
+        }
+    }
 }
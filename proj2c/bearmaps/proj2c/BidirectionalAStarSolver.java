@@ -0,0 +1,210 @@
+package bearmaps.proj2c;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import edu.princeton.cs.algs4.Stopwatch;
+import bearmaps.proj2ab.IntIndexMinPQ;
+
+/**
+ * A* that searches forward from the start and backward from the end at the
+ * same time, over the graph and its reversed() view, alternating between the
+ * two fringes.
+ *
+ * Both searches use the average potential p(v) = (h(v, end) - h'(v, start)) / 2,
+ * forward, and -p(v) backward, where h and h' are the estimatedDistanceToGoal
+ * of the graph and of its reversed view. If both are consistent, so are the
+ * potentials, and each search is Dijkstra's algorithm on a graph with
+ * non-negative edge weights.
+ * The best start-to-end path seen so far, through a vertex reached by both
+ * searches, is then a shortest path once the two smallest fringe priorities
+ * add up to at least its weight.
+ */
+public class BidirectionalAStarSolver<Vertex> implements ShortestPathsSolver<Vertex> {
+    private final CompactAStarGraph<Vertex> forward;
+    private final CompactAStarGraph<Vertex> backward;
+    private final Vertex origin;
+    private final Vertex goal;
+    private int numStatesExplored;
+    private SolverOutcome outcome;
+    private List<Vertex> solution;
+    private double solutionWeight;
+    private double timeSpent;
+
+    /* Per-direction state by dense index. parentTo[v] is the vertex that v was
+     * reached from by the forward search, parentFrom[v] the vertex after v on
+     * the way to the goal found by the backward search. */
+    private double[] distTo;
+    private double[] distFrom;
+    private int[] parentTo;
+    private int[] parentFrom;
+    private IntIndexMinPQ fringeTo;
+    private IntIndexMinPQ fringeFrom;
+    private IntToDoubleFunction toGoal;
+    private IntToDoubleFunction toOrigin;
+
+    /* The best path found so far passes through meeting, and has weight best. */
+    private double best;
+    private int meeting;
+
+    public BidirectionalAStarSolver(CompactAStarGraph<Vertex> input, Vertex start, Vertex end,
+                                    double timeout) {
+        this(input, start, end, new SearchDeadline(timeout));
+    }
+
+    /** Solves until DEADLINE expires or is cancelled, in which case the
+      * outcome is TIMEOUT. */
+    public BidirectionalAStarSolver(CompactAStarGraph<Vertex> input, Vertex start, Vertex end,
+                                    SearchDeadline deadline) {
+        Stopwatch sw = new Stopwatch();
+
+        forward = input;
+        backward = input.reversed();
+        origin = start;
+        goal = end;
+        numStatesExplored = 0;
+        solution = new ArrayList<Vertex>();
+        solutionWeight = 0;
+
+        solve(deadline);
+        timeSpent = sw.elapsedTime();
+    }
+
+    public SolverOutcome outcome() {
+        return outcome;
+    }
+
+    public List<Vertex> solution() {
+        return solution;
+    }
+
+    public double solutionWeight() {
+        return solutionWeight;
+    }
+
+    /** Returns the number of vertices removed from either fringe. */
+    public int numStatesExplored() {
+        return numStatesExplored;
+    }
+
+    public double explorationTime() {
+        return timeSpent;
+    }
+
+    /* HELPER METHODS */
+
+    private void solve(SearchDeadline deadline) {
+        int n = forward.numVertices();
+        distTo = new double[n];
+        distFrom = new double[n];
+        for (int i = 0; i < n; i++) {
+            distTo[i] = Double.POSITIVE_INFINITY;
+            distFrom[i] = Double.POSITIVE_INFINITY;
+        }
+        parentTo = new int[n];
+        parentFrom = new int[n];
+        fringeTo = new IntIndexMinPQ(n);
+        fringeFrom = new IntIndexMinPQ(n);
+
+        int originIndex = forward.indexOf(origin);
+        int goalIndex = forward.indexOf(goal);
+        toGoal = forward.heuristicTo(goalIndex);
+        toOrigin = backward.heuristicTo(originIndex);
+
+        best = Double.POSITIVE_INFINITY;
+        meeting = -1;
+        distTo[originIndex] = 0.0;
+        distFrom[goalIndex] = 0.0;
+        fringeTo.add(originIndex, potential(originIndex));
+        fringeFrom.add(goalIndex, -potential(goalIndex));
+        if (originIndex == goalIndex) {
+            best = 0.0;
+            meeting = originIndex;
+        }
+
+        while (fringeTo.size() > 0 && fringeFrom.size() > 0) {
+            if (deadline.expiredAt(numStatesExplored)) {
+                outcome = SolverOutcome.TIMEOUT;
+                return;
+            }
+
+            if (fringeTo.getSmallestPriority() + fringeFrom.getSmallestPriority() >= best) {
+                break;
+            }
+
+            if (fringeTo.size() <= fringeFrom.size()) {
+                int p = fringeTo.removeSmallest();
+                scan(forward, p, distTo, parentTo, fringeTo, distFrom, 1);
+            } else {
+                int p = fringeFrom.removeSmallest();
+                scan(backward, p, distFrom, parentFrom, fringeFrom, distTo, -1);
+            }
+
+            numStatesExplored++;
+        }
+
+        if (meeting < 0) {
+            outcome = SolverOutcome.UNSOLVABLE;
+            return;
+        }
+        generateSolution(originIndex, goalIndex);
+        outcome = SolverOutcome.SOLVED;
+    }
+
+    /**
+     * Relaxes the edges out of P in GRAPH, for the search whose state is DIST,
+     * PARENT and FRINGE. OTHERDIST is the other search's distances, used to
+     * spot paths joining the two. SIGN is 1 forward and -1 backward, and
+     * selects the potential.
+     */
+    private void scan(CompactAStarGraph<Vertex> graph, int p, double[] dist, int[] parent,
+                      IntIndexMinPQ fringe, double[] otherDist, int sign) {
+        int end = graph.edgeOffset(p + 1);
+        for (int e = graph.edgeOffset(p); e < end; e++) {
+            int q = graph.edgeTarget(e);
+            double newDist = dist[p] + graph.edgeWeight(e);
+
+            if (newDist < dist[q]) {
+                dist[q] = newDist;
+                parent[q] = p;
+
+                double newPriority = newDist + sign * potential(q);
+                if (fringe.contains(q)) {
+                    fringe.changePriority(q, newPriority);
+                } else {
+                    fringe.add(q, newPriority);
+                }
+
+                if (newDist + otherDist[q] < best) {
+                    best = newDist + otherDist[q];
+                    meeting = q;
+                }
+            }
+        }
+    }
+
+    /** Returns the forward search's potential at V. */
+    private double potential(int v) {
+        return (toGoal.applyAsDouble(v) - toOrigin.applyAsDouble(v)) / 2;
+    }
+
+    /** Joins the forward path to the meeting vertex with the backward path
+      * from it. */
+    private void generateSolution(int originIndex, int goalIndex) {
+        solutionWeight = best;
+        int p = meeting;
+        while (p != originIndex) {
+            solution.add(forward.vertexAt(p));
+            p = parentTo[p];
+        }
+        solution.add(origin);
+        Collections.reverse(solution);
+
+        p = meeting;
+        while (p != goalIndex) {
+            p = parentFrom[p];
+            solution.add(forward.vertexAt(p));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package bearmaps.proj2c;
+
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * An IndexedAStarGraph whose edges can be read by dense index without
+ * allocating, as in compressed sparse row form. The outgoing edges of
+ * vertex v are the edge indices edgeOffset(v) through edgeOffset(v + 1) - 1.
+ */
+public interface CompactAStarGraph<Vertex> extends IndexedAStarGraph<Vertex> {
+    int edgeOffset(int v);
+    int edgeTarget(int edge);
+    double edgeWeight(int edge);
+    double estimatedDistanceToGoal(int v, int goal);
+
+    /**
+     * Returns a view of this graph with every edge reversed, sharing its
+     * vertex index. Reversing the view gives back this graph.
+     */
+    CompactAStarGraph<Vertex> reversed();
+
+    /**
+     * Returns the heuristic for one search towards GOAL, as a function of a
+     * vertex's dense index. Graphs can override this to look up the goal's
+     * data once per search instead of once per call.
+     */
+    default IntToDoubleFunction heuristicTo(int goal) {
+        return v -> estimatedDistanceToGoal(v, goal);
+    }
+}
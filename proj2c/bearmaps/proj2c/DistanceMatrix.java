@@ -0,0 +1,139 @@
+package bearmaps.proj2c;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import bearmaps.proj2ab.IntMinPQ;
+
+/**
+ * Shortest-path distances between every source and every target of a
+ * CompactAStarGraph, for callers that need many of them at once.
+ *
+ * Each row is one run of Dijkstra's algorithm from its source, which stops
+ * once every target is settled, rather than one A* search per pair. Rows are
+ * computed in parallel on the common fork/join pool, each worker using its
+ * thread's SearchWorkspace.
+ */
+public class DistanceMatrix {
+    /** Returns the matrix whose entry [i][j] is the weight of a shortest
+      * path from SOURCES[i] to TARGETS[j], or infinity if there is none. */
+    public static <Vertex> double[][] compute(CompactAStarGraph<Vertex> graph,
+                                              List<Vertex> sources, List<Vertex> targets) {
+        int[] sourceIndices = indicesOf(graph, sources);
+        Targets t = new Targets(graph, indicesOf(graph, targets));
+        double[][] result = new double[sources.size()][];
+        ForkJoinPool.commonPool().invoke(new RowTask(graph, sourceIndices, t, result,
+                0, sourceIndices.length));
+        return result;
+    }
+
+    /** Returns the weights of shortest paths from SOURCE to each of TARGETS,
+      * computed on the calling thread. */
+    public static <Vertex> double[] distancesFrom(CompactAStarGraph<Vertex> graph, Vertex source,
+                                                  List<Vertex> targets) {
+        Targets t = new Targets(graph, indicesOf(graph, targets));
+        return row(graph, graph.indexOf(source), t);
+    }
+
+    private static <Vertex> int[] indicesOf(CompactAStarGraph<Vertex> graph, List<Vertex> vertices) {
+        int[] indices = new int[vertices.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = graph.indexOf(vertices.get(i));
+        }
+        return indices;
+    }
+
+    /** The dense indices of the targets, and which vertices are targets, shared
+      * read-only by all rows. */
+    private static class Targets {
+        private final int[] indices;
+        private final boolean[] isTarget;
+        private final int distinct;
+
+        Targets(CompactAStarGraph<?> graph, int[] indices) {
+            this.indices = indices;
+            isTarget = new boolean[graph.numVertices()];
+            int count = 0;
+            for (int v : indices) {
+                if (!isTarget[v]) {
+                    isTarget[v] = true;
+                    count++;
+                }
+            }
+            distinct = count;
+        }
+    }
+
+    /** Runs Dijkstra's algorithm from SOURCE until all targets are settled,
+      * and returns the distance to each. */
+    private static double[] row(CompactAStarGraph<?> graph, int source, Targets targets) {
+        SearchWorkspace workspace = SearchWorkspace.forThisThread(graph.numVertices());
+        workspace.begin();
+        IntMinPQ fringe = workspace.fringe();
+        int remaining = targets.distinct;
+
+        workspace.reach(source, 0.0, source);
+        fringe.add(source, 0.0);
+        while (fringe.size() > 0 && remaining > 0) {
+            int p = fringe.removeSmallest();
+            if (targets.isTarget[p]) {
+                remaining--;
+            }
+            double d = workspace.distTo(p);
+            int end = graph.edgeOffset(p + 1);
+            for (int e = graph.edgeOffset(p); e < end; e++) {
+                int q = graph.edgeTarget(e);
+                double newDist = d + graph.edgeWeight(e);
+                if (newDist < workspace.distTo(q)) {
+                    workspace.reach(q, newDist, p);
+                    if (fringe.contains(q)) {
+                        fringe.changePriority(q, newDist);
+                    } else {
+                        fringe.add(q, newDist);
+                    }
+                }
+            }
+        }
+
+        // Every target reached is settled by now, and the rest are unreachable.
+        double[] distances = new double[targets.indices.length];
+        for (int j = 0; j < distances.length; j++) {
+            distances[j] = workspace.distTo(targets.indices[j]);
+        }
+        return distances;
+    }
+
+    /** Computes the rows for the sources in [lo, hi), halving larger ranges. */
+    private static class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CompactAStarGraph<?> graph;
+        private final int[] sources;
+        private final Targets targets;
+        private final double[][] result;
+        private final int lo, hi;
+
+        RowTask(CompactAStarGraph<?> graph, int[] sources, Targets targets, double[][] result,
+                int lo, int hi) {
+            this.graph = graph;
+            this.sources = sources;
+            this.targets = targets;
+            this.result = result;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= 1) {
+                for (int i = lo; i < hi; i++) {
+                    result[i] = row(graph, sources[i], targets);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new RowTask(graph, sources, targets, result, lo, mid),
+                    new RowTask(graph, sources, targets, result, mid, hi));
+        }
+    }
+}
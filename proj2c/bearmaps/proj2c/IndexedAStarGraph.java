@@ -0,0 +1,12 @@
+package bearmaps.proj2c;
+
+/**
+ * An AStarGraph whose vertices can be mapped to the dense integers
+ * 0 through numVertices() - 1. Solvers may use the index to replace
+ * per-vertex maps with arrays.
+ */
+public interface IndexedAStarGraph<Vertex> extends AStarGraph<Vertex> {
+    int numVertices();
+    int indexOf(Vertex v);
+    Vertex vertexAt(int index);
+}
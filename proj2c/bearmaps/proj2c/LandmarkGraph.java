@@ -0,0 +1,348 @@
+package bearmaps.proj2c;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import bearmaps.proj2ab.IntIndexMinPQ;
+
+/**
+ * Wraps a CompactAStarGraph with the ALT (A*, landmarks, triangle inequality)
+ * heuristic. Preprocessing picks a few landmark vertices and stores the
+ * shortest-path distance from every landmark to every vertex, and from every
+ * vertex to every landmark. For a landmark L, the triangle inequality gives
+ * two lower bounds on the distance from v to t:
+ *
+ *     d(L, t) - d(L, v)   and   d(v, L) - d(t, L).
+ *
+ * The estimate is the largest of these over all landmarks, and of the wrapped
+ * graph's own estimate. It stays consistent, and follows the road network
+ * rather than straight lines, so A* explores fewer vertices.
+ *
+ * Edges and vertices are those of the wrapped graph, so a LandmarkGraph can be
+ * passed to AStarSolver in its place. Tables can be written next to the graph
+ * file with write and read back with read or loadOrBuild.
+ */
+public class LandmarkGraph<Vertex> implements CompactAStarGraph<Vertex> {
+    /** Appended to a graph's file name to name its landmark table. */
+    public static final String LANDMARKS_SUFFIX = ".landmarks";
+    static final int LANDMARKS_MAGIC = 0x4C4D4B01;
+    /* Magic, n, k and the graph's fingerprint. */
+    private static final int LANDMARKS_HEADER_BYTES = 20;
+
+    private final CompactAStarGraph<Vertex> graph;
+    private final int[] landmarks;
+    /* Distances by vertex, then landmark: from[v * k + i] is d(landmarks[i], v)
+     * and to[v * k + i] is d(v, landmarks[i]). Unreachable pairs are infinite. */
+    private final double[] from;
+    private final double[] to;
+    private final LandmarkGraph<Vertex> reversed;
+
+    private LandmarkGraph(CompactAStarGraph<Vertex> graph, int[] landmarks,
+                          double[] from, double[] to, LandmarkGraph<Vertex> reversed) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+        this.reversed = reversed != null ? reversed
+                : new LandmarkGraph<>(graph.reversed(), landmarks, to, from, this);
+    }
+
+    /**
+     * Chooses NUMLANDMARKS landmarks in GRAPH by farthest-point selection and
+     * computes their distance tables. Each new landmark is the vertex whose
+     * shortest distance from the landmarks so far is largest, so landmarks
+     * end up spread around the edge of the network. Runs two Dijkstra
+     * searches per landmark.
+     */
+    public static <Vertex> LandmarkGraph<Vertex> build(CompactAStarGraph<Vertex> graph,
+                                                        int numLandmarks) {
+        int n = graph.numVertices();
+        if (numLandmarks < 1 || numLandmarks > n) {
+            throw new IllegalArgumentException("Need between 1 and " + n
+                    + " landmarks. Given: " + numLandmarks + ".");
+        }
+        int k = numLandmarks;
+        int[] landmarks = new int[k];
+        double[] from = new double[n * k];
+        double[] to = new double[n * k];
+
+        // The first pick only seeds the search for the real first landmark.
+        double[] nearest = dijkstra(graph, 0);
+        for (int i = 0; i < k; i++) {
+            int farthest = 0;
+            for (int v = 0; v < n; v++) {
+                if (nearest[v] != Double.POSITIVE_INFINITY
+                        && (nearest[farthest] == Double.POSITIVE_INFINITY
+                            || nearest[v] > nearest[farthest])) {
+                    farthest = v;
+                }
+            }
+            landmarks[i] = farthest;
+
+            double[] dFrom = dijkstra(graph, farthest);
+            double[] dTo = dijkstra(graph.reversed(), farthest);
+            for (int v = 0; v < n; v++) {
+                from[v * k + i] = dFrom[v];
+                to[v * k + i] = dTo[v];
+                nearest[v] = i == 0 ? dFrom[v] : Math.min(nearest[v], dFrom[v]);
+            }
+        }
+        return new LandmarkGraph<>(graph, landmarks, from, to, null);
+    }
+
+    /**
+     * Returns the table for GRAPH stored in the file FILENAME, which must have
+     * been written by write for a graph with the same vertex index and edges.
+     * Throws an IllegalArgumentException if the file was written for a
+     * different graph, and an IOException if it cannot be read or is
+     * truncated or damaged.
+     */
+    public static <Vertex> LandmarkGraph<Vertex> read(CompactAStarGraph<Vertex> graph,
+                                                       String filename) throws IOException {
+        long fileBytes = new File(filename).length();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(filename), 1 << 16))) {
+            if (fileBytes < LANDMARKS_HEADER_BYTES || in.readInt() != LANDMARKS_MAGIC) {
+                throw new IOException("Not a landmark file: " + filename);
+            }
+            int n = in.readInt();
+            int k = in.readInt();
+            long fingerprint = in.readLong();
+            if (n != graph.numVertices() || fingerprint != fingerprint(graph)) {
+                throw new IllegalArgumentException(
+                        "Landmark file " + filename + " was built for a different graph.");
+            }
+            // Check the counts against the file before allocating anything.
+            if (k < 1 || k > n || (long) n * k > Integer.MAX_VALUE
+                    || fileBytes != tableBytes(n, k)) {
+                throw new IOException("Damaged landmark file: " + filename);
+            }
+            int[] landmarks = new int[k];
+            for (int i = 0; i < k; i++) {
+                landmarks[i] = in.readInt();
+                if (landmarks[i] < 0 || landmarks[i] >= n) {
+                    throw new IOException("Damaged landmark file: " + filename);
+                }
+            }
+            double[] from = new double[n * k];
+            double[] to = new double[n * k];
+            for (int j = 0; j < n * k; j++) {
+                from[j] = in.readDouble();
+            }
+            for (int j = 0; j < n * k; j++) {
+                to[j] = in.readDouble();
+            }
+            return new LandmarkGraph<>(graph, landmarks, from, to, null);
+        }
+    }
+
+    /** Returns the size in bytes of a table of K landmarks over N vertices. */
+    private static long tableBytes(int n, int k) {
+        return LANDMARKS_HEADER_BYTES + 4L * k + 2 * 8L * n * k;
+    }
+
+    /**
+     * Returns the table for GRAPH stored in GRAPHFILENAME + LANDMARKS_SUFFIX.
+     * If there is no such file, or it belongs to another version of the
+     * graph or cannot be read whole, builds a table with NUMLANDMARKS
+     * landmarks and writes it there in place of the old one.
+     */
+    public static <Vertex> LandmarkGraph<Vertex> loadOrBuild(CompactAStarGraph<Vertex> graph,
+                                                              String graphFilename,
+                                                              int numLandmarks) throws IOException {
+        String filename = graphFilename + LANDMARKS_SUFFIX;
+        if (new File(filename).isFile()) {
+            try {
+                return read(graph, filename);
+            } catch (IOException | IllegalArgumentException e) {
+                // Stale or damaged; fall through and rebuild.
+            }
+        }
+        LandmarkGraph<Vertex> lg = build(graph, numLandmarks);
+        lg.write(filename);
+        return lg;
+    }
+
+    /** Writes the landmark table to the file FILENAME, creating or replacing
+      * it. The table goes to a temporary file next to FILENAME that is then
+      * renamed over it, so a reader never sees a partly written table. */
+    public void write(String filename) throws IOException {
+        int n = numVertices();
+        int k = landmarks.length;
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(),
+                target.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                out.writeInt(LANDMARKS_MAGIC);
+                out.writeInt(n);
+                out.writeInt(k);
+                out.writeLong(fingerprint(graph));
+                for (int l : landmarks) {
+                    out.writeInt(l);
+                }
+                for (int j = 0; j < n * k; j++) {
+                    out.writeDouble(from[j]);
+                }
+                for (int j = 0; j < n * k; j++) {
+                    out.writeDouble(to[j]);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Returns the landmarks, as dense vertex indices. */
+    public int[] landmarks() {
+        return landmarks.clone();
+    }
+
+    @Override
+    public List<WeightedEdge<Vertex>> neighbors(Vertex v) {
+        return graph.neighbors(v);
+    }
+
+    @Override
+    public double estimatedDistanceToGoal(Vertex s, Vertex goal) {
+        return estimatedDistanceToGoal(indexOf(s), indexOf(goal));
+    }
+
+    @Override
+    public int numVertices() {
+        return graph.numVertices();
+    }
+
+    @Override
+    public int indexOf(Vertex v) {
+        return graph.indexOf(v);
+    }
+
+    @Override
+    public Vertex vertexAt(int index) {
+        return graph.vertexAt(index);
+    }
+
+    @Override
+    public int edgeOffset(int v) {
+        return graph.edgeOffset(v);
+    }
+
+    @Override
+    public int edgeTarget(int edge) {
+        return graph.edgeTarget(edge);
+    }
+
+    @Override
+    public double edgeWeight(int edge) {
+        return graph.edgeWeight(edge);
+    }
+
+    /** Returns the landmark estimate from V to GOAL, reading GOAL's
+      * distances in place, without allocating. */
+    @Override
+    public double estimatedDistanceToGoal(int v, int goal) {
+        int k = landmarks.length;
+        return landmarkBound(v, graph.estimatedDistanceToGoal(v, goal), from, to, goal * k);
+    }
+
+    /** Returns the landmark heuristic towards GOAL, with GOAL's distances
+      * copied out once. */
+    @Override
+    public IntToDoubleFunction heuristicTo(int goal) {
+        int k = landmarks.length;
+        double[] fromGoal = new double[k];
+        double[] toGoal = new double[k];
+        System.arraycopy(from, goal * k, fromGoal, 0, k);
+        System.arraycopy(to, goal * k, toGoal, 0, k);
+        IntToDoubleFunction base = graph.heuristicTo(goal);
+        return v -> landmarkBound(v, base.applyAsDouble(v), fromGoal, toGoal, 0);
+    }
+
+    /**
+     * Returns the largest of ESTIMATE and the landmark bounds on the distance
+     * from V to a goal whose distances from and to the landmarks are
+     * FROMGOAL and TOGOAL, starting at GOALAT.
+     */
+    private double landmarkBound(int v, double estimate, double[] fromGoal, double[] toGoal,
+                                 int goalAt) {
+        int k = landmarks.length;
+        int j = v * k;
+        for (int i = 0; i < k; i++, j++) {
+            // Skipped where a landmark and v or the goal can't reach each other.
+            double ahead = fromGoal[goalAt + i] - from[j];
+            if (ahead > estimate && ahead != Double.POSITIVE_INFINITY) {
+                estimate = ahead;
+            }
+            double behind = to[j] - toGoal[goalAt + i];
+            if (behind > estimate && behind != Double.POSITIVE_INFINITY) {
+                estimate = behind;
+            }
+        }
+        return estimate;
+    }
+
+    /** Returns the same landmarks over the reversed graph, with the to and
+      * from tables swapped. */
+    @Override
+    public CompactAStarGraph<Vertex> reversed() {
+        return reversed;
+    }
+
+    /** Returns shortest-path distances from SOURCE to every vertex of GRAPH. */
+    private static double[] dijkstra(CompactAStarGraph<?> graph, int source) {
+        int n = graph.numVertices();
+        double[] dist = new double[n];
+        for (int i = 0; i < n; i++) {
+            dist[i] = Double.POSITIVE_INFINITY;
+        }
+        IntIndexMinPQ fringe = new IntIndexMinPQ(n);
+        dist[source] = 0.0;
+        fringe.add(source, 0.0);
+        while (fringe.size() > 0) {
+            int p = fringe.removeSmallest();
+            int end = graph.edgeOffset(p + 1);
+            for (int e = graph.edgeOffset(p); e < end; e++) {
+                int q = graph.edgeTarget(e);
+                double newDist = dist[p] + graph.edgeWeight(e);
+                if (newDist < dist[q]) {
+                    dist[q] = newDist;
+                    if (fringe.contains(q)) {
+                        fringe.changePriority(q, newDist);
+                    } else {
+                        fringe.add(q, newDist);
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+
+    /** Returns a hash of GRAPH's vertex order and edges, to recognise the
+      * graph a table was built for. */
+    private static long fingerprint(CompactAStarGraph<?> graph) {
+        int n = graph.numVertices();
+        long h = n;
+        for (int v = 0; v < n; v++) {
+            h = 31 * h + graph.vertexAt(v).hashCode();
+            h = 31 * h + graph.edgeOffset(v + 1);
+        }
+        for (int e = 0; e < graph.edgeOffset(n); e++) {
+            h = 31 * h + graph.edgeTarget(e);
+            h = 31 * h + Double.hashCode(graph.edgeWeight(e));
+        }
+        return h;
+    }
+}
@@ -0,0 +1,47 @@
+package bearmaps.proj2c;
+
+/**
+ * A time limit for a search that can also be cut short by another thread,
+ * e.g. when the client that asked for a route goes away.
+ *
+ * Solvers poll expired() every CHECK_INTERVAL expansions rather than reading
+ * the clock on every one, so a search may run that many expansions past its
+ * deadline or a call to cancel().
+ */
+public class SearchDeadline {
+    /** The number of expansions between checks; a power of two. */
+    public static final int CHECK_INTERVAL = 64;
+
+    private final long start;
+    private final long budget;
+    private volatile boolean cancelled = false;
+
+    /** Creates a deadline TIMEOUT seconds from now. An infinite TIMEOUT
+      * never expires, though the search can still be cancelled. */
+    public SearchDeadline(double timeout) {
+        start = System.nanoTime();
+        // Casting saturates, so huge timeouts become Long.MAX_VALUE.
+        budget = (long) (timeout * 1e9);
+    }
+
+    /** Asks any search using this deadline to stop at its next check. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** Returns true if the search should stop: it was cancelled, or its
+      * time is up. */
+    public boolean expired() {
+        return cancelled || System.nanoTime() - start > budget;
+    }
+
+    /** Returns true if the search should stop before its EXPANSIONS-th
+      * expansion, checking the clock only once per CHECK_INTERVAL. */
+    boolean expiredAt(int expansions) {
+        return (expansions & (CHECK_INTERVAL - 1)) == 0 && expired();
+    }
+}
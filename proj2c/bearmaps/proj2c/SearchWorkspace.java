@@ -0,0 +1,96 @@
+package bearmaps.proj2c;
+
+import java.util.Arrays;
+import bearmaps.proj2ab.IntMinPQ;
+import bearmaps.proj2ab.MinPQFactory;
+
+/**
+ * The per-vertex arrays of a search over an IndexedAStarGraph, kept so that
+ * later searches can reuse them instead of allocating their own.
+ *
+ * Entries are stamped with the generation of the search that wrote them, and
+ * begin() starts a new generation, so an entry left by an earlier search reads
+ * as unset without the arrays being cleared. The workspace keeps one fringe
+ * per MinPQFactory type, created the first time a search asks for it. A
+ * workspace may be used by one search at a time; forThisThread keeps one per
+ * thread for that purpose.
+ */
+public class SearchWorkspace {
+    private static final ThreadLocal<SearchWorkspace> POOL = new ThreadLocal<>();
+
+    private final double[] distTo;
+    private final int[] parent;
+    private final int[] stamp;
+    /* Fringes by MinPQFactory.Type ordinal, or null if not yet used. */
+    private final IntMinPQ[] fringes = new IntMinPQ[MinPQFactory.Type.values().length];
+    private IntMinPQ fringe;
+    private int generation = 0;
+
+    /** Creates a workspace for graphs of up to CAPACITY vertices. */
+    public SearchWorkspace(int capacity) {
+        distTo = new double[capacity];
+        parent = new int[capacity];
+        stamp = new int[capacity];
+    }
+
+    /**
+     * Returns this thread's workspace, replacing it with a larger one if it
+     * cannot hold NUMVERTICES vertices.
+     */
+    public static SearchWorkspace forThisThread(int numVertices) {
+        SearchWorkspace workspace = POOL.get();
+        if (workspace == null || workspace.capacity() < numVertices) {
+            workspace = new SearchWorkspace(numVertices);
+            POOL.set(workspace);
+        }
+        return workspace;
+    }
+
+    /** Returns the number of vertices this workspace can hold. */
+    public int capacity() {
+        return stamp.length;
+    }
+
+    /** Starts a new search with a fringe of the default type. */
+    void begin() {
+        begin(MinPQFactory.DEFAULT);
+    }
+
+    /** Starts a new search: every distance reads as infinite and fringe()
+      * is an empty PQ of the given FRINGETYPE, which must not be
+      * MinPQFactory.Type.ARRAY_HEAP. */
+    void begin(MinPQFactory.Type fringeType) {
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 0;
+        }
+        generation++;
+        int t = fringeType.ordinal();
+        if (fringes[t] == null) {
+            fringes[t] = MinPQFactory.createIndexed(fringeType, capacity());
+        }
+        fringe = fringes[t];
+        fringe.clear();
+    }
+
+    /** Returns the best known distance to V in this search. */
+    double distTo(int v) {
+        return stamp[v] == generation ? distTo[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /** Records that V is at distance DIST, reached from PARENT. */
+    void reach(int v, double dist, int from) {
+        stamp[v] = generation;
+        distTo[v] = dist;
+        parent[v] = from;
+    }
+
+    /** Returns the vertex V was last reached from in this search. */
+    int parent(int v) {
+        return parent[v];
+    }
+
+    IntMinPQ fringe() {
+        return fringe;
+    }
+}
@@ -0,0 +1,116 @@
+package bearmaps.proj2c;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import edu.princeton.cs.algs4.Stopwatch;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
+
+/**
+ * Compares one A* search per pair with DistanceMatrix, row by row on one
+ * thread and in parallel, for square matrices of random Berkeley vertices.
+ * Every method is warmed up first, and the row by row and parallel runs
+ * alternate, so that neither is timed before the JIT has compiled it.
+ * Run from the proj2c directory.
+ */
+public class TimeDistanceMatrix {
+    private static final String BERKELEY = "bearmaps/proj2c/input/berkeley-street-data.simple";
+
+    /** The most pairs to solve with A* before estimating the rest. */
+    private static final int MAX_ASTAR_PAIRS = 20000;
+
+    /** The number of timed runs of each DistanceMatrix method per size. */
+    private static final int REPEATS = 7;
+
+    /** Returns N random vertices of G that have at least one edge out. */
+    private static List<Long> randomVertices(StreetMapGraph g, int N, Random rnd) {
+        List<Long> vertices = new ArrayList<>();
+        for (long v : g.vertices()) {
+            int i = g.indexOf(v);
+            if (g.edgeOffset(i + 1) > g.edgeOffset(i)) {
+                vertices.add(v);
+            }
+        }
+        Collections.sort(vertices);
+        List<Long> chosen = new ArrayList<>();
+        for (int i = 0; i < N; i++) {
+            chosen.add(vertices.get(rnd.nextInt(vertices.size())));
+        }
+        return chosen;
+    }
+
+    /** Returns the time in seconds to solve every pair with A*, estimated
+      * from the first MAX_ASTAR_PAIRS if there are more. */
+    private static double timeAStar(StreetMapGraph g, List<Long> sources, List<Long> targets) {
+        int pairs = 0;
+        Stopwatch sw = new Stopwatch();
+        outer:
+        for (long s : sources) {
+            for (long t : targets) {
+                if (pairs == MAX_ASTAR_PAIRS) {
+                    break outer;
+                }
+                new AStarSolver<>(g, s, t, 60);
+                pairs++;
+            }
+        }
+        return sw.elapsedTime() * sources.size() * targets.size() / pairs;
+    }
+
+    private static double timeSequential(StreetMapGraph g, List<Long> sources, List<Long> targets) {
+        Stopwatch sw = new Stopwatch();
+        for (long s : sources) {
+            DistanceMatrix.distancesFrom(g, s, targets);
+        }
+        return sw.elapsedTime();
+    }
+
+    private static double timeParallel(StreetMapGraph g, List<Long> sources, List<Long> targets) {
+        Stopwatch sw = new Stopwatch();
+        DistanceMatrix.compute(g, sources, targets);
+        return sw.elapsedTime();
+    }
+
+    /** Returns the median of TIMES, which it sorts. */
+    private static double median(double[] times) {
+        Arrays.sort(times);
+        return times[times.length / 2];
+    }
+
+    public static void main(String[] args) {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        Random rnd = new Random(25);
+
+        List<Long> warmSources = randomVertices(g, 100, rnd);
+        List<Long> warmTargets = randomVertices(g, 100, rnd);
+        for (int i = 0; i < 10; i++) {
+            timeSequential(g, warmSources, warmTargets);
+            timeParallel(g, warmSources, warmTargets);
+        }
+        timeAStar(g, warmSources, warmTargets);
+
+        System.out.println("Distance matrices on Berkeley, "
+                + Runtime.getRuntime().availableProcessors() + " processors, "
+                + "DistanceMatrix medians of " + REPEATS + " runs");
+        System.out.printf("%12s %16s %16s %16s\n", "N x N", "A* pairs (s)",
+                "sequential (s)", "parallel (s)");
+        System.out.printf("--------------------------------------------------------------\n");
+        for (int N : new int[]{100, 1000}) {
+            List<Long> sources = randomVertices(g, N, rnd);
+            List<Long> targets = randomVertices(g, N, rnd);
+            double astar = timeAStar(g, sources, targets);
+            String estimated = N * N > MAX_ASTAR_PAIRS ? " (est)" : "";
+            double[] sequential = new double[REPEATS];
+            double[] parallel = new double[REPEATS];
+            for (int i = 0; i < REPEATS; i++) {
+                sequential[i] = timeSequential(g, sources, targets);
+                parallel[i] = timeParallel(g, sources, targets);
+            }
+            System.out.printf("%12s %16s %16.3f %16.3f\n", N + " x " + N,
+                    String.format("%.2f", astar) + estimated,
+                    median(sequential), median(parallel));
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package bearmaps.proj2c.lectureexample;
 
-import bearmaps.proj2c.AStarGraph;
+import bearmaps.proj2c.IndexedAStarGraph;
 import bearmaps.proj2c.WeightedEdge;
 
 import java.util.ArrayList;
@@ -10,7 +10,7 @@ import java.util.List;
  * A very simple (and literal) example of an AStarGraph.
  * Created by hug.
  */
-public class WeightedDirectedGraph implements AStarGraph<Integer> {
+public class WeightedDirectedGraph implements IndexedAStarGraph<Integer> {
     /* Represents the list of edges from a single vertex. */
     private class EdgeList {
         private List<WeightedEdge<Integer>> list;
@@ -48,6 +48,21 @@ public class WeightedDirectedGraph implements AStarGraph<Integer> {
         return estimate;
     }
 
+    @Override
+    public int numVertices() {
+        return adj.length;
+    }
+
+    @Override
+    public int indexOf(Integer v) {
+        return v;
+    }
+
+    @Override
+    public Integer vertexAt(int index) {
+        return index;
+    }
+
     public void addEdge(int p, int q, double w) {
         WeightedEdge<Integer> e = new WeightedEdge<>(p, q, w);
         adj[p].list.add(e);
@@ -0,0 +1,100 @@
+package bearmaps.proj2c.sanitytests;
+
+import bearmaps.proj2c.AStarSolver;
+import bearmaps.proj2c.BidirectionalAStarSolver;
+import bearmaps.proj2c.ShortestPathsSolver;
+import bearmaps.proj2c.SolverOutcome;
+import bearmaps.proj2c.WeightedEdge;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BidirectionalAStarSolverTest {
+    private static final String BERKELEY = "bearmaps/proj2c/input/berkeley-street-data.simple";
+
+    private static StreetMapGraph berkeley() {
+        return StreetMapGraph.readFromSimpleFormat(BERKELEY);
+    }
+
+    /** Returns the total weight of PATH, checking that each step is an edge. */
+    private static double pathWeight(StreetMapGraph g, List<Long> path) {
+        double weight = 0;
+        for (int i = 0; i < path.size() - 1; i++) {
+            double step = Double.NaN;
+            for (WeightedEdge<Long> e : g.neighbors(path.get(i))) {
+                if (e.to().equals(path.get(i + 1))) {
+                    step = e.weight();
+                }
+            }
+            assertTrue("No edge " + path.get(i) + " -> " + path.get(i + 1), !Double.isNaN(step));
+            weight += step;
+        }
+        return weight;
+    }
+
+    @Test
+    public void testReversedGraph() {
+        StreetMapGraph g = berkeley();
+        assertEquals(g, g.reversed().reversed());
+        assertEquals(g.edgeOffset(g.numVertices()), g.reversed().edgeOffset(g.numVertices()));
+        for (long v : g.vertices()) {
+            for (WeightedEdge<Long> e : g.neighbors(v)) {
+                boolean found = false;
+                for (WeightedEdge<Long> r : g.reversed().neighbors(e.to())) {
+                    found |= r.to().equals(v) && r.weight() == e.weight();
+                }
+                assertTrue(found);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesAStar() {
+        StreetMapGraph g = berkeley();
+        List<Long> vertices = new ArrayList<>(g.vertices());
+        Collections.sort(vertices);
+        Random random = new Random(61);
+        long exploredForward = 0;
+        long exploredBoth = 0;
+
+        for (int i = 0; i < 200; i++) {
+            long start = vertices.get(random.nextInt(vertices.size()));
+            long end = vertices.get(random.nextInt(vertices.size()));
+            ShortestPathsSolver<Long> expected = new AStarSolver<>(g, start, end, 10);
+            ShortestPathsSolver<Long> actual = new BidirectionalAStarSolver<>(g, start, end, 10);
+
+            assertEquals(expected.outcome(), actual.outcome());
+            assertEquals(expected.solutionWeight(), actual.solutionWeight(), 1e-9);
+            if (actual.outcome() == SolverOutcome.SOLVED) {
+                List<Long> path = actual.solution();
+                assertEquals(start, (long) path.get(0));
+                assertEquals(end, (long) path.get(path.size() - 1));
+                assertEquals(actual.solutionWeight(), pathWeight(g, path), 1e-9);
+            }
+            exploredForward += expected.numStatesExplored();
+            exploredBoth += actual.numStatesExplored();
+        }
+        assertTrue(exploredBoth < exploredForward);
+    }
+
+    @Test
+    public void testStartIsGoal() {
+        StreetMapGraph g = berkeley();
+        long v = g.vertexAt(0);
+        ShortestPathsSolver<Long> solver = new BidirectionalAStarSolver<>(g, v, v, 10);
+        assertEquals(SolverOutcome.SOLVED, solver.outcome());
+        assertEquals(List.of(v), solver.solution());
+        assertEquals(0.0, solver.solutionWeight(), 0.0);
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", BidirectionalAStarSolverTest.class);
+    }
+}
@@ -0,0 +1,71 @@
+package bearmaps.proj2c.sanitytests;
+
+import bearmaps.proj2c.AStarSolver;
+import bearmaps.proj2c.DistanceMatrix;
+import bearmaps.proj2c.ShortestPathsSolver;
+import bearmaps.proj2c.SolverOutcome;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DistanceMatrixTest {
+    private static final String BERKELEY = "bearmaps/proj2c/input/berkeley-street-data.simple";
+
+    private static List<Long> randomVertices(List<Long> vertices, int N, Random random) {
+        List<Long> chosen = new ArrayList<>();
+        for (int i = 0; i < N; i++) {
+            chosen.add(vertices.get(random.nextInt(vertices.size())));
+        }
+        return chosen;
+    }
+
+    @Test
+    public void testMatchesAStar() {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        List<Long> vertices = new ArrayList<>(g.vertices());
+        Collections.sort(vertices);
+        Random random = new Random(25);
+        List<Long> sources = randomVertices(vertices, 20, random);
+        List<Long> targets = randomVertices(vertices, 30, random);
+        // A repeated target gets the same distance in both columns.
+        targets.add(targets.get(0));
+
+        double[][] matrix = DistanceMatrix.compute(g, sources, targets);
+        assertEquals(sources.size(), matrix.length);
+        for (int i = 0; i < sources.size(); i++) {
+            assertEquals(targets.size(), matrix[i].length);
+            for (int j = 0; j < targets.size(); j++) {
+                ShortestPathsSolver<Long> solver = new AStarSolver<>(g, sources.get(i),
+                        targets.get(j), 10);
+                if (solver.outcome() == SolverOutcome.SOLVED) {
+                    assertEquals(solver.solutionWeight(), matrix[i][j], 1e-9);
+                } else {
+                    assertEquals(Double.POSITIVE_INFINITY, matrix[i][j], 0.0);
+                }
+            }
+            assertArrayEquals(matrix[i], DistanceMatrix.distancesFrom(g, sources.get(i), targets), 0.0);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        long v = g.vertexAt(0);
+        assertEquals(0, DistanceMatrix.compute(g, List.of(), List.of(v)).length);
+        double[][] matrix = DistanceMatrix.compute(g, List.of(v), List.of());
+        assertEquals(1, matrix.length);
+        assertEquals(0, matrix[0].length);
+        assertEquals(0.0, DistanceMatrix.compute(g, List.of(v), List.of(v))[0][0], 0.0);
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", DistanceMatrixTest.class);
+    }
+}
@@ -0,0 +1,139 @@
+package bearmaps.proj2c.sanitytests;
+
+import bearmaps.proj2c.AStarSolver;
+import bearmaps.proj2c.BidirectionalAStarSolver;
+import bearmaps.proj2c.LandmarkGraph;
+import bearmaps.proj2c.ShortestPathsSolver;
+import bearmaps.proj2c.SolverOutcome;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LandmarkGraphTest {
+    private static final String BERKELEY = "bearmaps/proj2c/input/berkeley-street-data.simple";
+
+    @Test
+    public void testMatchesAStar() {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        LandmarkGraph<Long> lg = LandmarkGraph.build(g, 8);
+        List<Long> vertices = new ArrayList<>(g.vertices());
+        Collections.sort(vertices);
+        Random random = new Random(61);
+        long exploredPlain = 0;
+        long exploredLandmarks = 0;
+
+        for (int i = 0; i < 200; i++) {
+            long start = vertices.get(random.nextInt(vertices.size()));
+            long end = vertices.get(random.nextInt(vertices.size()));
+            ShortestPathsSolver<Long> expected = new AStarSolver<>(g, start, end, 10);
+            ShortestPathsSolver<Long> actual = new AStarSolver<>(lg, start, end, 10);
+            ShortestPathsSolver<Long> both = new BidirectionalAStarSolver<>(lg, start, end, 10);
+
+            assertEquals(expected.outcome(), actual.outcome());
+            assertEquals(expected.solutionWeight(), actual.solutionWeight(), 1e-9);
+            assertEquals(expected.solutionWeight(), both.solutionWeight(), 1e-9);
+            if (expected.outcome() == SolverOutcome.SOLVED) {
+                assertTrue(lg.estimatedDistanceToGoal(start, end) <= expected.solutionWeight() + 1e-9);
+            }
+            exploredPlain += expected.numStatesExplored();
+            exploredLandmarks += actual.numStatesExplored();
+        }
+        assertTrue(exploredLandmarks < exploredPlain);
+    }
+
+    /** The per-call estimate, which reads the goal's distances in place,
+      * matches the per-search heuristic, which copies them. */
+    @Test
+    public void testEstimateMatchesHeuristic() {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        LandmarkGraph<Long> lg = LandmarkGraph.build(g, 4);
+        Random random = new Random(20);
+        for (int i = 0; i < 20; i++) {
+            int goal = random.nextInt(lg.numVertices());
+            IntToDoubleFunction heuristic = lg.heuristicTo(goal);
+            for (int j = 0; j < 100; j++) {
+                int v = random.nextInt(lg.numVertices());
+                assertEquals(heuristic.applyAsDouble(v), lg.estimatedDistanceToGoal(v, goal), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        LandmarkGraph<Long> lg = LandmarkGraph.build(g, 4);
+        File file = File.createTempFile("berkeley", LandmarkGraph.LANDMARKS_SUFFIX);
+        file.deleteOnExit();
+        lg.write(file.getPath());
+
+        LandmarkGraph<Long> read = LandmarkGraph.read(g, file.getPath());
+        assertArrayEquals(lg.landmarks(), read.landmarks());
+        for (int v = 0; v < g.numVertices(); v += 37) {
+            for (int t = 0; t < g.numVertices(); t += 101) {
+                assertEquals(lg.estimatedDistanceToGoal(v, t), read.estimatedDistanceToGoal(v, t), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testDamagedTable() throws IOException {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        LandmarkGraph<Long> lg = LandmarkGraph.build(g, 4);
+        File graphFile = File.createTempFile("berkeley", ".simple");
+        graphFile.deleteOnExit();
+        String table = graphFile.getPath() + LandmarkGraph.LANDMARKS_SUFFIX;
+        new File(table).deleteOnExit();
+
+        lg.write(table);
+        try (RandomAccessFile file = new RandomAccessFile(table, "rw")) {
+            file.setLength(file.length() / 2);
+        }
+        try {
+            LandmarkGraph.read(g, table);
+            fail("Read a truncated table.");
+        } catch (IOException e) {
+            // Expected.
+        }
+
+        lg.write(table);
+        try (RandomAccessFile file = new RandomAccessFile(table, "rw")) {
+            // a landmark count that would overflow n * k
+            file.seek(8);
+            file.writeInt(Integer.MAX_VALUE);
+        }
+        try {
+            LandmarkGraph.read(g, table);
+            fail("Read a table with a bad landmark count.");
+        } catch (IOException e) {
+            // Expected.
+        }
+
+        // loadOrBuild replaces the damaged table rather than failing on it
+        LandmarkGraph<Long> rebuilt = LandmarkGraph.loadOrBuild(g, graphFile.getPath(), 4);
+        assertArrayEquals(lg.landmarks(), rebuilt.landmarks());
+        assertArrayEquals(lg.landmarks(), LandmarkGraph.read(g, table).landmarks());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyLandmarks() {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        LandmarkGraph.build(g, g.numVertices() + 1);
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", LandmarkGraphTest.class);
+    }
+}
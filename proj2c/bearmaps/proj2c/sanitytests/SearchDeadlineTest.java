@@ -0,0 +1,130 @@
+package bearmaps.proj2c.sanitytests;
+
+import bearmaps.proj2c.AStarGraph;
+import bearmaps.proj2c.AStarSolver;
+import bearmaps.proj2c.BidirectionalAStarSolver;
+import bearmaps.proj2c.SearchDeadline;
+import bearmaps.proj2c.SolverOutcome;
+import bearmaps.proj2c.WeightedEdge;
+import bearmaps.proj2c.lectureexample.WeightedDirectedGraph;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SearchDeadlineTest {
+    private static final String BERKELEY = "bearmaps/proj2c/input/berkeley-street-data.simple";
+
+    /** A path of integers with unit weights that cancels DEADLINE once the
+      * search asks for the neighbors of CANCELAT. */
+    private static class CancellingChain implements AStarGraph<Integer> {
+        private final SearchDeadline deadline;
+        private final int cancelAt;
+
+        CancellingChain(SearchDeadline deadline, int cancelAt) {
+            this.deadline = deadline;
+            this.cancelAt = cancelAt;
+        }
+
+        @Override
+        public List<WeightedEdge<Integer>> neighbors(Integer v) {
+            if (v == cancelAt) {
+                deadline.cancel();
+            }
+            List<WeightedEdge<Integer>> edges = new ArrayList<>();
+            edges.add(new WeightedEdge<>(v, v + 1, 1));
+            return edges;
+        }
+
+        @Override
+        public double estimatedDistanceToGoal(Integer s, Integer goal) {
+            return Math.abs(goal - s);
+        }
+    }
+
+    @Test
+    public void testExpiry() {
+        assertTrue(new SearchDeadline(0).expired());
+        SearchDeadline forever = new SearchDeadline(Double.POSITIVE_INFINITY);
+        assertFalse(forever.expired());
+        forever.cancel();
+        assertTrue(forever.isCancelled());
+        assertTrue(forever.expired());
+    }
+
+    /** A search stops within one check interval of being cancelled, with
+      * an empty solution and the path it had made so far. */
+    @Test
+    public void testCancelledMidSearch() {
+        SearchDeadline deadline = new SearchDeadline(Double.POSITIVE_INFINITY);
+        AStarSolver<Integer> solver = new AStarSolver<>(new CancellingChain(deadline, 1000),
+                0, 1000000, deadline);
+
+        assertEquals(SolverOutcome.TIMEOUT, solver.outcome());
+        assertTrue(solver.numStatesExplored() <= 1001 + SearchDeadline.CHECK_INTERVAL);
+        assertTrue(solver.solution().isEmpty());
+        assertEquals(0, solver.solutionWeight(), 0.0);
+
+        List<Integer> partial = solver.partialSolution();
+        assertTrue(partial.size() > 1000);
+        for (int i = 0; i < partial.size(); i++) {
+            assertEquals(i, (int) partial.get(i));
+        }
+    }
+
+    @Test
+    public void testCancelledIndexed() {
+        WeightedDirectedGraph wdg = new WeightedDirectedGraph(3);
+        wdg.addEdge(0, 1, 1);
+        wdg.addEdge(1, 2, 1);
+        SearchDeadline deadline = new SearchDeadline(10);
+        deadline.cancel();
+        AStarSolver<Integer> solver = new AStarSolver<>(wdg, 0, 2, deadline);
+
+        assertEquals(SolverOutcome.TIMEOUT, solver.outcome());
+        assertEquals(0, solver.numStatesExplored());
+        assertTrue(solver.solution().isEmpty());
+        assertEquals(0, solver.solutionIndices().length);
+        assertEquals(List.of(0), solver.partialSolution());
+
+        AStarSolver<Integer> solved = new AStarSolver<>(wdg, 0, 2, new SearchDeadline(10));
+        assertEquals(SolverOutcome.SOLVED, solved.outcome());
+        assertEquals(List.of(0, 1, 2), solved.solution());
+        assertTrue(solved.partialSolution().isEmpty());
+    }
+
+    /** A deadline that does not expire gives the same answers as a timeout. */
+    @Test
+    public void testMatchesTimeout() {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        List<Long> vertices = new ArrayList<>(g.vertices());
+        Collections.sort(vertices);
+        long start = vertices.get(0);
+        long end = vertices.get(vertices.size() - 1);
+
+        AStarSolver<Long> expected = new AStarSolver<>(g, start, end, 10);
+        AStarSolver<Long> actual = new AStarSolver<>(g, start, end, new SearchDeadline(10));
+        assertEquals(expected.outcome(), actual.outcome());
+        assertEquals(expected.solution(), actual.solution());
+
+        BidirectionalAStarSolver<Long> both = new BidirectionalAStarSolver<>(g, start, end,
+                new SearchDeadline(10));
+        assertEquals(expected.solutionWeight(), both.solutionWeight(), 1e-9);
+
+        SearchDeadline cancelled = new SearchDeadline(10);
+        cancelled.cancel();
+        both = new BidirectionalAStarSolver<>(g, start, end, cancelled);
+        assertEquals(SolverOutcome.TIMEOUT, both.outcome());
+        assertTrue(both.solution().isEmpty());
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", SearchDeadlineTest.class);
+    }
+}
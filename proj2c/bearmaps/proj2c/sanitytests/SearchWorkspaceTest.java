@@ -0,0 +1,103 @@
+package bearmaps.proj2c.sanitytests;
+
+import bearmaps.proj2ab.MinPQFactory;
+import bearmaps.proj2c.AStarSolver;
+import bearmaps.proj2c.SearchWorkspace;
+import bearmaps.proj2c.ShortestPathsSolver;
+import bearmaps.proj2c.lectureexample.WeightedDirectedGraph;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SearchWorkspaceTest {
+    private static final String BERKELEY = "bearmaps/proj2c/input/berkeley-street-data.simple";
+
+    /** Runs the same queries on a fresh workspace each time and on one
+      * shared workspace; stale state in the shared one would change results. */
+    @Test
+    public void testReuseGivesSameResults() {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        List<Long> vertices = new ArrayList<>(g.vertices());
+        Collections.sort(vertices);
+        Random random = new Random(22);
+        SearchWorkspace shared = new SearchWorkspace(g.numVertices());
+
+        for (int i = 0; i < 100; i++) {
+            long start = vertices.get(random.nextInt(vertices.size()));
+            long end = vertices.get(random.nextInt(vertices.size()));
+            ShortestPathsSolver<Long> fresh = new AStarSolver<>(g, start, end, 10,
+                    new SearchWorkspace(g.numVertices()));
+            ShortestPathsSolver<Long> reused = new AStarSolver<>(g, start, end, 10, shared);
+
+            assertEquals(fresh.outcome(), reused.outcome());
+            assertEquals(fresh.solution(), reused.solution());
+            assertEquals(fresh.solutionWeight(), reused.solutionWeight(), 0.0);
+            assertEquals(fresh.numStatesExplored(), reused.numStatesExplored());
+        }
+    }
+
+    @Test
+    public void testForThisThreadGrows() {
+        SearchWorkspace small = SearchWorkspace.forThisThread(4);
+        assertTrue(small.capacity() >= 4);
+        SearchWorkspace large = SearchWorkspace.forThisThread(small.capacity() + 100);
+        assertTrue(large.capacity() >= small.capacity() + 100);
+        assertSame(large, SearchWorkspace.forThisThread(4));
+    }
+
+    /** A workspace larger than the graph works; only the first
+      * numVertices() entries are used. */
+    @Test
+    public void testLargerWorkspace() {
+        WeightedDirectedGraph wdg = new WeightedDirectedGraph(3);
+        wdg.addEdge(0, 1, 1);
+        wdg.addEdge(1, 2, 1);
+        SearchWorkspace workspace = new SearchWorkspace(100);
+        for (int i = 0; i < 3; i++) {
+            ShortestPathsSolver<Integer> solver = new AStarSolver<>(wdg, 0, 2, 10, workspace);
+            assertEquals(List.of(0, 1, 2), solver.solution());
+            assertEquals(2.0, solver.solutionWeight(), 0.0);
+        }
+    }
+
+    /** Every fringe type works on an indexed graph and finds paths of the
+      * same weight; ARRAY_HEAP takes the hash map path but still reports
+      * solution indices. */
+    @Test
+    public void testEveryFringeType() {
+        int n = 200;
+        WeightedDirectedGraph wdg = new WeightedDirectedGraph(n);
+        Random random = new Random(4);
+        for (int i = 0; i < 5 * n; i++) {
+            wdg.addEdge(random.nextInt(n), random.nextInt(n), 1 + random.nextInt(20));
+        }
+
+        for (int i = 0; i < 50; i++) {
+            int start = random.nextInt(n);
+            int end = random.nextInt(n);
+            AStarSolver<Integer> expected = new AStarSolver<>(wdg, start, end, 10);
+            for (MinPQFactory.Type type : MinPQFactory.Type.values()) {
+                AStarSolver<Integer> actual = new AStarSolver<>(wdg, start, end, 10, type);
+                assertEquals(expected.outcome(), actual.outcome());
+                assertEquals(expected.solutionWeight(), actual.solutionWeight(), 0.0);
+                int[] indices = actual.solutionIndices();
+                assertEquals(actual.solution().size(), indices.length);
+                for (int j = 0; j < indices.length; j++) {
+                    assertEquals((int) actual.solution().get(j), indices[j]);
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", SearchWorkspaceTest.class);
+    }
+}
@@ -0,0 +1,95 @@
+package bearmaps.proj2c.sanitytests;
+
+import bearmaps.proj2c.AStarGraph;
+import bearmaps.proj2c.AStarSolver;
+import bearmaps.proj2c.SolverOutcome;
+import bearmaps.proj2c.WeightedEdge;
+import bearmaps.proj2c.lectureexample.WeightedDirectedGraph;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class SolutionPathTest {
+    private static final String BERKELEY = "bearmaps/proj2c/input/berkeley-street-data.simple";
+    private static final int CHAIN_LENGTH = 200000;
+
+    /** A path of integers 0, 1, 2, ... with unit weights and no index, so
+      * the solver takes its map-based path. */
+    private static class Chain implements AStarGraph<Integer> {
+        @Override
+        public List<WeightedEdge<Integer>> neighbors(Integer v) {
+            List<WeightedEdge<Integer>> edges = new ArrayList<>();
+            if (v + 1 < CHAIN_LENGTH) {
+                edges.add(new WeightedEdge<>(v, v + 1, 1));
+            }
+            return edges;
+        }
+
+        @Override
+        public double estimatedDistanceToGoal(Integer s, Integer goal) {
+            return 0;
+        }
+    }
+
+    /** Paths far longer than the call stack is deep are reconstructed. */
+    @Test
+    public void testLongPaths() {
+        AStarSolver<Integer> solver = new AStarSolver<>(new Chain(), 0, CHAIN_LENGTH - 1, 60);
+        assertEquals(SolverOutcome.SOLVED, solver.outcome());
+        assertEquals(CHAIN_LENGTH, solver.solution().size());
+        assertEquals(CHAIN_LENGTH - 1, solver.solutionWeight(), 0.0);
+        assertEquals(CHAIN_LENGTH - 1, solver.solutionDistances()[CHAIN_LENGTH - 1], 0.0);
+
+        WeightedDirectedGraph wdg = new WeightedDirectedGraph(CHAIN_LENGTH);
+        for (int v = 0; v + 1 < CHAIN_LENGTH; v++) {
+            wdg.addEdge(v, v + 1, 1);
+        }
+        AStarSolver<Integer> indexed = new AStarSolver<>(wdg, 0, CHAIN_LENGTH - 1, 60);
+        assertEquals(solver.solution(), indexed.solution());
+        assertEquals(CHAIN_LENGTH, indexed.solutionIndices().length);
+    }
+
+    /** The primitive arrays agree with solution() and solutionWeight(). */
+    @Test
+    public void testPrimitivePath() {
+        StreetMapGraph g = StreetMapGraph.readFromSimpleFormat(BERKELEY);
+        List<Long> vertices = new ArrayList<>(g.vertices());
+        Collections.sort(vertices);
+        Random random = new Random(23);
+
+        for (int i = 0; i < 100; i++) {
+            long start = vertices.get(random.nextInt(vertices.size()));
+            long end = vertices.get(random.nextInt(vertices.size()));
+            AStarSolver<Long> solver = new AStarSolver<>(g, start, end, 10);
+            int[] indices = solver.solutionIndices();
+            long[] ids = g.idsOf(indices);
+            double[] distances = solver.solutionDistances();
+            List<Long> solution = solver.solution();
+
+            assertEquals(solution.size(), ids.length);
+            assertEquals(solution.size(), distances.length);
+            for (int j = 0; j < ids.length; j++) {
+                assertEquals((long) solution.get(j), ids[j]);
+            }
+            if (distances.length > 0) {
+                assertEquals(0, distances[0], 0.0);
+                assertEquals(solver.solutionWeight(), distances[distances.length - 1], 0.0);
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIndicesNeedIndexedGraph() {
+        new AStarSolver<>(new Chain(), 0, 5, 10).solutionIndices();
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", SolutionPathTest.class);
+    }
+}
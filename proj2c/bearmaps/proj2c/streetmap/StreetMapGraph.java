@@ -1,6 +1,6 @@
 package bearmaps.proj2c.streetmap;
 
-import bearmaps.proj2c.AStarGraph;
+import bearmaps.proj2c.CompactAStarGraph;
 import bearmaps.proj2c.WeightedEdge;
 import org.xml.sax.SAXException;
 
@@ -18,11 +18,53 @@ import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.function.IntToDoubleFunction;
+
+public class StreetMapGraph implements CompactAStarGraph<Long> {
+    /** Earth's radius in miles, as used by the haversine distance. */
+    private static final double EARTH_RADIUS = 3963;
+
+    /** How estimatedDistanceToGoal measures the distance between vertices. */
+    public enum Heuristic {
+        /** The great-circle distance; the same measure as the edge weights. */
+        HAVERSINE,
+        /**
+         * The straight-line distance through the Earth between the two
+         * points. It needs no trigonometry per call and is never longer than
+         * the great-circle distance, so A* still finds shortest paths.
+         */
+        CHORD
+    }
 
-public class StreetMapGraph implements AStarGraph<Long> {
     private Map<Long, Node> nodes = new HashMap<>();
+    /* Edges while the graph is being built; dropped by clean() once the
+     * compressed sparse row arrays below hold them. */
     private Map<Long, Set<WeightedEdge<Long>>> neighbors = new HashMap<>();
 
+    /* Dense index over the vertices, rebuilt by clean(). */
+    private long[] vertexIds = new long[0];
+    private Map<Long, Integer> vertexIndex = new HashMap<>();
+
+    /* Edges in compressed sparse row form, by dense index: the edges out of
+     * vertex v are targets[i] / weights[i] for offsets[v] <= i < offsets[v + 1]. */
+    private int[] offsets = new int[1];
+    private int[] targets = new int[0];
+    private double[] weights = new double[0];
+
+    /* Per-vertex coordinates by dense index, for the heuristic: degrees and
+     * cos(lat), and position on the unit sphere. */
+    private double[] lats = new double[0];
+    private double[] lons = new double[0];
+    private double[] cosLats = new double[0];
+    private double[] xs = new double[0];
+    private double[] ys = new double[0];
+    private double[] zs = new double[0];
+    private Heuristic heuristic = Heuristic.HAVERSINE;
+
+    /* The incoming edges in the same form, built by the first call to
+     * reversed(). */
+    private ReversedGraph reversed;
+
 
     /**
      * Private empty constructor. StreetMapGraphs should only be
@@ -37,10 +79,10 @@ public class StreetMapGraph implements AStarGraph<Long> {
      **/
     @Override
     public List<WeightedEdge<Long>> neighbors(Long v) {
-        Set<WeightedEdge<Long>> incidentSet = neighbors.get(v);
-        List<WeightedEdge<Long>> incidentList = new ArrayList<>();
-        for (WeightedEdge<Long> e : incidentSet) {
-            incidentList.add(e);
+        int i = indexOf(v);
+        List<WeightedEdge<Long>> incidentList = new ArrayList<>(offsets[i + 1] - offsets[i]);
+        for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+            incidentList.add(new WeightedEdge<Long>(v, vertexIds[targets[e]], weights[e]));
         }
 
         return incidentList;
@@ -52,9 +94,220 @@ public class StreetMapGraph implements AStarGraph<Long> {
      */
     @Override
     public double estimatedDistanceToGoal(Long s, Long goal) {
-        Node sNode = nodes.get(s);
-        Node goalNode = nodes.get(goal);
-        return distance(sNode.lon(), goalNode.lon(), sNode.lat(), goalNode.lat());
+        return estimatedDistanceToGoal(indexOf(s), indexOf(goal));
+    }
+
+    /** Sets the distance measure used by estimatedDistanceToGoal and
+      * heuristicTo. The default is HAVERSINE. */
+    public void setHeuristic(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    /** Returns the number of vertices in this graph. */
+    @Override
+    public int numVertices() {
+        return vertexIds.length;
+    }
+
+    /**
+     * Returns the dense index of V, in [0, numVertices()). Assumes V exists
+     * in this graph.
+     */
+    @Override
+    public int indexOf(Long v) {
+        return vertexIndex.get(v);
+    }
+
+    /** Returns the vertex with the given dense INDEX. */
+    @Override
+    public Long vertexAt(int index) {
+        return vertexIds[index];
+    }
+
+    /** Returns the node ids of the vertices with the given dense INDICES, in
+      * order, e.g. for a path from AStarSolver.solutionIndices(). */
+    public long[] idsOf(int[] indices) {
+        long[] ids = new long[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            ids[i] = vertexIds[indices[i]];
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the index of the first edge out of the vertex with dense index
+     * V. Passing numVertices() returns the total number of edges.
+     */
+    @Override
+    public int edgeOffset(int v) {
+        return offsets[v];
+    }
+
+    /** Returns the dense index of the vertex that EDGE points to. */
+    @Override
+    public int edgeTarget(int edge) {
+        return targets[edge];
+    }
+
+    /** Returns the weight of EDGE. */
+    @Override
+    public double edgeWeight(int edge) {
+        return weights[edge];
+    }
+
+    /** Returns the distance, measured as set by setHeuristic, between the
+      * vertices with dense indices V and GOAL. */
+    @Override
+    public double estimatedDistanceToGoal(int v, int goal) {
+        if (heuristic == Heuristic.CHORD) {
+            return chord(v, xs[goal], ys[goal], zs[goal]);
+        }
+        return haversine(v, lats[goal], lons[goal], cosLats[goal]);
+    }
+
+    /** Returns the heuristic towards GOAL, with the goal's coordinates read
+      * once rather than on every call. */
+    @Override
+    public IntToDoubleFunction heuristicTo(int goal) {
+        if (heuristic == Heuristic.CHORD) {
+            double x = xs[goal];
+            double y = ys[goal];
+            double z = zs[goal];
+            return v -> chord(v, x, y, z);
+        }
+        double lat = lats[goal];
+        double lon = lons[goal];
+        double cosLat = cosLats[goal];
+        return v -> haversine(v, lat, lon, cosLat);
+    }
+
+    /** Returns the great-circle distance from vertex V to (LAT, LON), given
+      * COSLAT = cos(LAT). Computes the same value as distance. */
+    private double haversine(int v, double lat, double lon, double cosLat) {
+        double dphi = Math.toRadians(lat - lats[v]);
+        double dlambda = Math.toRadians(lon - lons[v]);
+
+        double a = Math.sin(dphi / 2.0) * Math.sin(dphi / 2.0);
+        a += cosLats[v] * cosLat * Math.sin(dlambda / 2.0) * Math.sin(dlambda / 2.0);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS * c;
+    }
+
+    /** Returns the straight-line distance from vertex V to the point (X, Y, Z)
+      * on the unit sphere, scaled to the Earth. */
+    private double chord(int v, double x, double y, double z) {
+        double dx = xs[v] - x;
+        double dy = ys[v] - y;
+        double dz = zs[v] - z;
+        return EARTH_RADIUS * Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Returns this graph with every edge reversed. The first call builds the
+     * incoming edge arrays; later calls return the same view.
+     */
+    @Override
+    public synchronized CompactAStarGraph<Long> reversed() {
+        if (reversed == null) {
+            reversed = new ReversedGraph();
+        }
+        return reversed;
+    }
+
+    /**
+     * A view of the enclosing graph with its edges reversed: the edges out of
+     * vertex v here are the edges into v there. Vertices, their index and the
+     * heuristic are shared with the enclosing graph.
+     */
+    private class ReversedGraph implements CompactAStarGraph<Long> {
+        private final int[] inOffsets;
+        private final int[] sources;
+        private final double[] inWeights;
+
+        /** Transposes the enclosing graph's edge arrays by counting sort on
+          * target. */
+        private ReversedGraph() {
+            int n = vertexIds.length;
+            inOffsets = new int[n + 1];
+            for (int e = 0; e < targets.length; e++) {
+                inOffsets[targets[e] + 1]++;
+            }
+            for (int v = 0; v < n; v++) {
+                inOffsets[v + 1] += inOffsets[v];
+            }
+            sources = new int[targets.length];
+            inWeights = new double[targets.length];
+            int[] next = new int[n];
+            System.arraycopy(inOffsets, 0, next, 0, n);
+            for (int v = 0; v < n; v++) {
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    int pos = next[targets[e]];
+                    next[targets[e]]++;
+                    sources[pos] = v;
+                    inWeights[pos] = weights[e];
+                }
+            }
+        }
+
+        @Override
+        public List<WeightedEdge<Long>> neighbors(Long v) {
+            int i = indexOf(v);
+            List<WeightedEdge<Long>> incidentList = new ArrayList<>(inOffsets[i + 1] - inOffsets[i]);
+            for (int e = inOffsets[i]; e < inOffsets[i + 1]; e++) {
+                incidentList.add(new WeightedEdge<Long>(v, vertexIds[sources[e]], inWeights[e]));
+            }
+            return incidentList;
+        }
+
+        @Override
+        public double estimatedDistanceToGoal(Long s, Long goal) {
+            return StreetMapGraph.this.estimatedDistanceToGoal(s, goal);
+        }
+
+        @Override
+        public int numVertices() {
+            return StreetMapGraph.this.numVertices();
+        }
+
+        @Override
+        public int indexOf(Long v) {
+            return StreetMapGraph.this.indexOf(v);
+        }
+
+        @Override
+        public Long vertexAt(int index) {
+            return vertexIds[index];
+        }
+
+        @Override
+        public int edgeOffset(int v) {
+            return inOffsets[v];
+        }
+
+        @Override
+        public int edgeTarget(int edge) {
+            return sources[edge];
+        }
+
+        @Override
+        public double edgeWeight(int edge) {
+            return inWeights[edge];
+        }
+
+        @Override
+        public double estimatedDistanceToGoal(int v, int goal) {
+            return StreetMapGraph.this.estimatedDistanceToGoal(v, goal);
+        }
+
+        @Override
+        public IntToDoubleFunction heuristicTo(int goal) {
+            return StreetMapGraph.this.heuristicTo(goal);
+        }
+
+        @Override
+        public CompactAStarGraph<Long> reversed() {
+            return StreetMapGraph.this;
+        }
     }
 
     /**
@@ -170,13 +423,14 @@ public class StreetMapGraph implements AStarGraph<Long> {
     }
 
     /**
-     * Removes vertices with 0 out-degree from graph. Note that this will
-     * cause issues if edges are not bidirectional.
+     * Removes vertices with 0 out-degree from graph, then freezes the edges
+     * into compressed sparse row form. Note that this will cause issues if
+     * edges are not bidirectional. No nodes or edges may be added afterwards.
      **/
     StreetMapGraph clean() {
         List<Long> toRemove = new ArrayList<>();
         for (long id : nodes.keySet()) {
-            if (neighbors(id).size() == 0) {
+            if (neighbors.get(id).isEmpty()) {
                 toRemove.add(id);
             }
         }
@@ -186,9 +440,71 @@ public class StreetMapGraph implements AStarGraph<Long> {
             neighbors.remove(id);
         }
 
+        buildIndex();
+        buildEdges();
+        neighbors = null;
         return this;
     }
 
+    /** Assigns every vertex a dense index in [0, numVertices()), and copies
+      * the coordinates into arrays in that order. */
+    private void buildIndex() {
+        int n = nodes.size();
+        vertexIds = new long[n];
+        vertexIndex = new HashMap<>();
+        lats = new double[n];
+        lons = new double[n];
+        cosLats = new double[n];
+        xs = new double[n];
+        ys = new double[n];
+        zs = new double[n];
+        int i = 0;
+        for (long id : nodes.keySet()) {
+            vertexIds[i] = id;
+            vertexIndex.put(id, i);
+
+            Node node = nodes.get(id);
+            double phi = Math.toRadians(node.lat());
+            double lambda = Math.toRadians(node.lon());
+            lats[i] = node.lat();
+            lons[i] = node.lon();
+            cosLats[i] = Math.cos(phi);
+            xs[i] = Math.cos(phi) * Math.cos(lambda);
+            ys[i] = Math.cos(phi) * Math.sin(lambda);
+            zs[i] = Math.sin(phi);
+            i++;
+        }
+    }
+
+    /** Copies the edge sets into offsets / targets / weights, dropping any
+      * edge whose target was removed by clean(). */
+    private void buildEdges() {
+        int n = vertexIds.length;
+        offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            int degree = 0;
+            for (WeightedEdge<Long> edge : neighbors.get(vertexIds[v])) {
+                if (vertexIndex.containsKey(edge.to())) {
+                    degree++;
+                }
+            }
+            offsets[v + 1] = offsets[v] + degree;
+        }
+        targets = new int[offsets[n]];
+        weights = new double[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            int e = offsets[v];
+            for (WeightedEdge<Long> edge : neighbors.get(vertexIds[v])) {
+                Integer target = vertexIndex.get(edge.to());
+                if (target != null) {
+                    targets[e] = target;
+                    weights[e] = edge.weight();
+                    e++;
+                }
+            }
+        }
+    }
+
     /**
      * We don't override hashCode(), so hash at your peril!
      */
@@ -250,7 +566,7 @@ public class StreetMapGraph implements AStarGraph<Long> {
         double a = Math.sin(dphi / 2.0) * Math.sin(dphi / 2.0);
         a += Math.cos(phi1) * Math.cos(phi2) * Math.sin(dlambda / 2.0) * Math.sin(dlambda / 2.0);
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return 3963 * c;
+        return EARTH_RADIUS * c;
     }
 
     /**
@@ -0,0 +1,877 @@
+package bearmaps.proj2c.streetmap;
+
+import bearmaps.proj2c.WeightedEdge;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A contraction hierarchy over a StreetMapGraph, for point-to-point shortest
+ * paths that settle a few hundred vertices instead of thousands.
+ *
+ * build contracts the vertices one at a time, cheapest first. Contracting v
+ * removes it from the graph, and adds a shortcut u -> w for each path
+ * u -> v -> w that was the only shortest path between its ends. The order of
+ * contraction is the vertex's rank. Every shortest path then has a form that
+ * only climbs in rank and then only descends, so a query searches upward from
+ * both ends, and the best vertex reached by both searches lies on a shortest
+ * path. Shortcuts remember the two edges they replace, so the path is
+ * unpacked into original edges at the end.
+ *
+ * A hierarchy can be written next to the graph file with write and loaded
+ * with read, so that the contraction is done once, offline; main does this
+ * from the command line. The file records a fingerprint of the graph it was
+ * built from, and read refuses it for any other graph.
+ */
+public class ContractionHierarchy {
+    /** File name suffix of hierarchies written by write. */
+    public static final String HIERARCHY_SUFFIX = ".ch";
+    /** Marks the start of a hierarchy file: "CHI" and the format version. */
+    static final int HIERARCHY_MAGIC = 0x43484902;
+    /** Size in bytes of a hierarchy file's header: magic, N, M, U, D and the
+      * graph fingerprint. */
+    private static final int HIERARCHY_HEADER_BYTES = 28;
+    /** Witness searches that only estimate a vertex's priority stop after
+      * settling this many vertices. Stopping early can only add unneeded
+      * shortcuts, never lose a path. */
+    private static final int SIMULATION_SETTLE_LIMIT = 20;
+    /** Witness searches that decide which shortcuts are added stop after
+      * settling this many vertices. */
+    private static final int CONTRACTION_SETTLE_LIMIT = 1000;
+
+    private final long fingerprint;
+    private final long[] ids;
+    private final Map<Long, Integer> index;
+    private final int[] rank;
+
+    /* Every edge, original or shortcut. A shortcut replaces the edges
+     * edgeFirst[e] and edgeSecond[e], in that order; both are -1 for an
+     * original edge. */
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final double[] edgeWeight;
+    private final int[] edgeFirst;
+    private final int[] edgeSecond;
+
+    /* The edges out of v to higher ranks are upEdges[upOffsets[v]] up to
+     * upEdges[upOffsets[v + 1] - 1]; the edges into v from higher ranks are
+     * laid out the same way in downOffsets and downEdges. */
+    private final int[] upOffsets;
+    private final int[] upEdges;
+    private final int[] downOffsets;
+    private final int[] downEdges;
+
+    private final ThreadLocal<Query> queries = ThreadLocal.withInitial(Query::new);
+
+    private ContractionHierarchy(long fingerprint, long[] ids, int[] rank, int[] edgeFrom, int[] edgeTo,
+                                 double[] edgeWeight, int[] edgeFirst, int[] edgeSecond,
+                                 int[] upOffsets, int[] upEdges,
+                                 int[] downOffsets, int[] downEdges) {
+        this.fingerprint = fingerprint;
+        this.ids = ids;
+        this.rank = rank;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.edgeWeight = edgeWeight;
+        this.edgeFirst = edgeFirst;
+        this.edgeSecond = edgeSecond;
+        this.upOffsets = upOffsets;
+        this.upEdges = upEdges;
+        this.downOffsets = downOffsets;
+        this.downEdges = downEdges;
+        index = new HashMap<>(2 * ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            index.put(ids[i], i);
+        }
+    }
+
+    /** Contracts every vertex of G and returns the resulting hierarchy. */
+    public static ContractionHierarchy build(StreetMapGraph g) {
+        return new Builder(g).contract();
+    }
+
+    /**
+     * Builds the hierarchy for the graph file named by the first argument and
+     * writes it next to that file, where the map server looks for it, or to
+     * the second argument if one is given. Prints the time taken and the
+     * number of shortcuts.
+     */
+    public static void main(String[] args) throws IOException {
+        StreetMapGraph g = new StreetMapGraph(args[0]);
+        long start = System.nanoTime();
+        ContractionHierarchy ch = build(g);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        String filename = args.length > 1 ? args[1] : args[0] + HIERARCHY_SUFFIX;
+        ch.write(filename);
+        System.out.println("Contracted " + g.getNodes().size() + " nodes in " + millis + " ms, adding "
+                + ch.numShortcuts() + " shortcuts; wrote " + filename + ".");
+    }
+
+    /** Returns the number of shortcut edges the contraction added. */
+    public int numShortcuts() {
+        int shortcuts = 0;
+        for (int first : edgeFirst) {
+            if (first >= 0) {
+                shortcuts++;
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * Returns the ids of the vertices on a shortest path from FROM to TO, in
+     * order, or an empty list if there is none. Assumes both are vertices of
+     * the graph the hierarchy was built from.
+     */
+    public List<Long> shortestPath(long from, long to) {
+        Query query = queries.get();
+        int meeting = query.run(index.get(from), index.get(to));
+        List<Long> path = new ArrayList<>();
+        if (meeting >= 0) {
+            query.unpack(meeting, path);
+        }
+        return path;
+    }
+
+    /** Returns the length of a shortest path from FROM to TO, or infinity if
+      * there is none. */
+    public double distance(long from, long to) {
+        Query query = queries.get();
+        query.run(index.get(from), index.get(to));
+        return query.best;
+    }
+
+    /**
+     * Writes this hierarchy to FILENAME, through a temporary file that is
+     * renamed into place once complete. All values are big-endian:
+     * -int magic, int N (vertices), int M (edges), int U (upward edges),
+     *  int D (downward edges), long fingerprint of the graph
+     * -long[N] ids, int[N] ranks
+     * -int[M] edge sources, int[M] edge targets, double[M] edge weights,
+     *  int[M] first and int[M] second replaced edges
+     * -int[N + 1] upward offsets, int[U] upward edges
+     * -int[N + 1] downward offsets, int[D] downward edges
+     */
+    public void write(String filename) throws IOException {
+        StreetMapGraph.writeAtomically(filename, out -> {
+            out.writeInt(HIERARCHY_MAGIC);
+            out.writeInt(ids.length);
+            out.writeInt(edgeFrom.length);
+            out.writeInt(upEdges.length);
+            out.writeInt(downEdges.length);
+            out.writeLong(fingerprint);
+            for (long id : ids) {
+                out.writeLong(id);
+            }
+            writeInts(out, rank);
+            writeInts(out, edgeFrom);
+            writeInts(out, edgeTo);
+            for (double w : edgeWeight) {
+                out.writeDouble(w);
+            }
+            writeInts(out, edgeFirst);
+            writeInts(out, edgeSecond);
+            writeInts(out, upOffsets);
+            writeInts(out, upEdges);
+            writeInts(out, downOffsets);
+            writeInts(out, downEdges);
+        });
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int v : values) {
+            out.writeInt(v);
+        }
+    }
+
+    /**
+     * Reads the hierarchy for G written by write, through a memory mapping.
+     * Throws IOException if the file cannot be read or is truncated or
+     * damaged, and IllegalArgumentException if it was built for a graph
+     * other than G.
+     */
+    public static ContractionHierarchy read(StreetMapGraph g, String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.remaining() < HIERARCHY_HEADER_BYTES || buf.getInt() != HIERARCHY_MAGIC) {
+                throw new IOException("Not a contraction hierarchy: " + filename);
+            }
+            int n = buf.getInt();
+            int m = buf.getInt();
+            int u = buf.getInt();
+            int d = buf.getInt();
+            long fingerprint = buf.getLong();
+            if (n < 0 || m < 0 || u < 0 || d < 0 || fileBytes(n, m, u, d) != channel.size()) {
+                throw new IOException("Truncated contraction hierarchy: " + filename);
+            }
+            if (n != g.getNodes().size() || fingerprint != fingerprint(g)) {
+                throw new IllegalArgumentException(
+                        "Contraction hierarchy " + filename + " was built for a different graph.");
+            }
+            long[] ids = new long[n];
+            int[] rank = new int[n];
+            int[] edgeFrom = new int[m];
+            int[] edgeTo = new int[m];
+            double[] edgeWeight = new double[m];
+            int[] edgeFirst = new int[m];
+            int[] edgeSecond = new int[m];
+            int[] upOffsets = new int[n + 1];
+            int[] upEdges = new int[u];
+            int[] downOffsets = new int[n + 1];
+            int[] downEdges = new int[d];
+            StreetMapGraph.getLongs(buf, ids);
+            StreetMapGraph.getInts(buf, rank);
+            StreetMapGraph.getInts(buf, edgeFrom);
+            StreetMapGraph.getInts(buf, edgeTo);
+            StreetMapGraph.getDoubles(buf, edgeWeight);
+            StreetMapGraph.getInts(buf, edgeFirst);
+            StreetMapGraph.getInts(buf, edgeSecond);
+            StreetMapGraph.getInts(buf, upOffsets);
+            StreetMapGraph.getInts(buf, upEdges);
+            StreetMapGraph.getInts(buf, downOffsets);
+            StreetMapGraph.getInts(buf, downEdges);
+            StreetMapGraph.checkIndices(rank, 0, n, filename);
+            StreetMapGraph.checkIndices(edgeFrom, 0, n, filename);
+            StreetMapGraph.checkIndices(edgeTo, 0, n, filename);
+            StreetMapGraph.checkIndices(edgeFirst, -1, m, filename);
+            StreetMapGraph.checkIndices(edgeSecond, -1, m, filename);
+            StreetMapGraph.checkOffsets(upOffsets, u, filename);
+            StreetMapGraph.checkIndices(upEdges, 0, m, filename);
+            StreetMapGraph.checkOffsets(downOffsets, d, filename);
+            StreetMapGraph.checkIndices(downEdges, 0, m, filename);
+            return new ContractionHierarchy(fingerprint, ids, rank, edgeFrom, edgeTo, edgeWeight,
+                    edgeFirst, edgeSecond, upOffsets, upEdges, downOffsets, downEdges);
+        }
+    }
+
+    /** Returns the size in bytes of a hierarchy file with N vertices, M
+      * edges, U upward and D downward edges. */
+    private static long fileBytes(int n, int m, int u, int d) {
+        return HIERARCHY_HEADER_BYTES + 12L * n + 24L * m + 4L * (n + 1) + 4L * u
+                + 4L * (n + 1) + 4L * d;
+    }
+
+    /**
+     * Returns a hash of G's vertices and edges, to recognise the graph a
+     * hierarchy was built for. Each vertex and edge is hashed on its own and
+     * the hashes summed, so the result does not depend on the order G lists
+     * them in, which differs between a graph parsed from XML and one read
+     * from a snapshot.
+     */
+    static long fingerprint(StreetMapGraph g) {
+        long h = 0;
+        for (Node node : g.getNodes()) {
+            h += mix(node.id());
+            for (WeightedEdge<Long> e : g.neighbors(node.id())) {
+                h += mix(mix(31 * e.from() + e.to()) + Double.doubleToLongBits(e.weight()));
+            }
+        }
+        return h;
+    }
+
+    /** Scrambles the bits of X (the SplitMix64 finaliser). */
+    private static long mix(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+
+    /**
+     * The state of one query, reused by later queries on the same thread.
+     * Only the vertices a query touched are reset afterwards, so a query costs
+     * time in the size of its search spaces, not of the graph.
+     */
+    private class Query {
+        private final double[] distUp = new double[ids.length];
+        private final double[] distDown = new double[ids.length];
+        private final int[] parentUp = new int[ids.length];
+        private final int[] parentDown = new int[ids.length];
+        private final IntList touched = new IntList();
+        private final Heap fringeUp = new Heap();
+        private final Heap fringeDown = new Heap();
+        private double best;
+        private int source;
+        private int target;
+
+        private Query() {
+            Arrays.fill(distUp, Double.POSITIVE_INFINITY);
+            Arrays.fill(distDown, Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * Searches upward from S and, over reversed edges, from T. Each search
+         * stops once its fringe holds nothing shorter than the best path
+         * found. Returns the highest vertex of that path, or -1 if there is
+         * none.
+         */
+        private int run(int s, int t) {
+            reset();
+            source = s;
+            target = t;
+            best = Double.POSITIVE_INFINITY;
+            int meeting = -1;
+            touch(s);
+            touch(t);
+            distUp[s] = 0.0;
+            distDown[t] = 0.0;
+            fringeUp.push(s, 0.0);
+            fringeDown.push(t, 0.0);
+
+            while (true) {
+                boolean up = !fringeUp.isEmpty() && fringeUp.minKey() < best;
+                boolean down = !fringeDown.isEmpty() && fringeDown.minKey() < best;
+                if (!up && !down) {
+                    break;
+                }
+                if (up && (!down || fringeUp.minKey() <= fringeDown.minKey())) {
+                    double d = fringeUp.minKey();
+                    int v = fringeUp.pop();
+                    if (d > distUp[v]) {
+                        continue;
+                    }
+                    if (distUp[v] + distDown[v] < best) {
+                        best = distUp[v] + distDown[v];
+                        meeting = v;
+                    }
+                    if (stalled(v, d, downOffsets, downEdges, edgeFrom, distUp)) {
+                        continue;
+                    }
+                    for (int i = upOffsets[v]; i < upOffsets[v + 1]; i++) {
+                        int e = upEdges[i];
+                        relax(edgeTo[e], d + edgeWeight[e], e, distUp, parentUp, fringeUp);
+                    }
+                } else {
+                    double d = fringeDown.minKey();
+                    int v = fringeDown.pop();
+                    if (d > distDown[v]) {
+                        continue;
+                    }
+                    if (distUp[v] + distDown[v] < best) {
+                        best = distUp[v] + distDown[v];
+                        meeting = v;
+                    }
+                    if (stalled(v, d, upOffsets, upEdges, edgeTo, distDown)) {
+                        continue;
+                    }
+                    for (int i = downOffsets[v]; i < downOffsets[v + 1]; i++) {
+                        int e = downEdges[i];
+                        relax(edgeFrom[e], d + edgeWeight[e], e, distDown, parentDown, fringeDown);
+                    }
+                }
+            }
+            return meeting;
+        }
+
+        /**
+         * Returns true if some higher vertex u, already reached by this
+         * search, has an edge to V (forward) or from V (backward) that gives
+         * a shorter distance than D. V is then not on a shortest up-down
+         * path, and need not be expanded. The edges to check are those the
+         * other search would use at V, listed by OFFSETS and EDGES with ENDS
+         * giving their far ends; DIST is this search's distances.
+         */
+        private boolean stalled(int v, double d, int[] offsets, int[] edges, int[] ends,
+                                double[] dist) {
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int e = edges[i];
+                if (dist[ends[e]] + edgeWeight[e] < d) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void relax(int w, double newDist, int e, double[] dist, int[] parent, Heap fringe) {
+            if (newDist < dist[w]) {
+                touch(w);
+                dist[w] = newDist;
+                parent[w] = e;
+                fringe.push(w, newDist);
+            }
+        }
+
+        private void touch(int v) {
+            if (distUp[v] == Double.POSITIVE_INFINITY && distDown[v] == Double.POSITIVE_INFINITY) {
+                touched.add(v);
+            }
+        }
+
+        private void reset() {
+            for (int i = 0; i < touched.size; i++) {
+                distUp[touched.values[i]] = Double.POSITIVE_INFINITY;
+                distDown[touched.values[i]] = Double.POSITIVE_INFINITY;
+            }
+            touched.size = 0;
+            fringeUp.size = 0;
+            fringeDown.size = 0;
+        }
+
+        /** Appends to PATH the ids on the path through MEETING found by the
+          * last run, with every shortcut expanded. */
+        private void unpack(int meeting, List<Long> path) {
+            List<Integer> upward = new ArrayList<>();
+            for (int v = meeting; v != source; v = edgeFrom[parentUp[v]]) {
+                upward.add(parentUp[v]);
+            }
+            Collections.reverse(upward);
+
+            path.add(ids[source]);
+            for (int e : upward) {
+                unpackEdge(e, path);
+            }
+            for (int v = meeting; v != target; v = edgeTo[parentDown[v]]) {
+                unpackEdge(parentDown[v], path);
+            }
+        }
+
+        /** Appends to PATH the ids after the source of edge E on the
+          * original edges it stands for. */
+        private void unpackEdge(int e, List<Long> path) {
+            if (edgeFirst[e] < 0) {
+                path.add(ids[edgeTo[e]]);
+                return;
+            }
+            unpackEdge(edgeFirst[e], path);
+            unpackEdge(edgeSecond[e], path);
+        }
+    }
+
+    /**
+     * Contracts a graph. Edges live in growable arrays indexed by edge id,
+     * and each vertex lists the ids of its edges in and out. Contracting a
+     * vertex removes its edges from its neighbours' lists, so the lists of an
+     * uncontracted vertex hold only edges among uncontracted vertices.
+     */
+    private static class Builder {
+        private final StreetMapGraph g;
+        private final int n;
+        private final long[] ids;
+        private final IntList[] out;
+        private final IntList[] in;
+        private final boolean[] contracted;
+        /* The number of contracted neighbours; spreads contraction evenly. */
+        private final int[] depth;
+        /* One more than the highest level among contracted neighbours; keeps
+         * the hierarchy shallow. */
+        private final int[] level;
+        /* The shortcuts contracting each vertex would add and the edges it
+         * would remove, as of the vertex's last simulated contraction. */
+        private final int[] shortcutsOf;
+        private final int[] removedOf;
+
+        private int numEdges = 0;
+        private int[] edgeFrom = new int[1024];
+        private int[] edgeTo = new int[1024];
+        private double[] edgeWeight = new double[1024];
+        private int[] edgeFirst = new int[1024];
+        private int[] edgeSecond = new int[1024];
+
+        /* Witness search state, reset after each search. The vertices with
+         * targetMark[v] == targetStamp are the targets of the current one. */
+        private final double[] witnessDist;
+        private final int[] targetMark;
+        private int targetStamp = 0;
+        private final IntList witnessTouched = new IntList();
+        private final Heap witnessFringe = new Heap();
+
+        private Builder(StreetMapGraph g) {
+            this.g = g;
+            List<Node> nodes = g.getNodes();
+            n = nodes.size();
+            ids = new long[n];
+            Map<Long, Integer> index = new HashMap<>(2 * n);
+            for (int i = 0; i < n; i++) {
+                ids[i] = nodes.get(i).id();
+                index.put(ids[i], i);
+            }
+            out = new IntList[n];
+            in = new IntList[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new IntList();
+                in[v] = new IntList();
+            }
+            for (int v = 0; v < n; v++) {
+                for (WeightedEdge<Long> e : g.neighbors(ids[v])) {
+                    Integer w = index.get(e.to());
+                    if (w != null && w != v) {
+                        addEdge(v, w, e.weight(), -1, -1);
+                    }
+                }
+            }
+            contracted = new boolean[n];
+            depth = new int[n];
+            level = new int[n];
+            shortcutsOf = new int[n];
+            removedOf = new int[n];
+            witnessDist = new double[n];
+            targetMark = new int[n];
+            Arrays.fill(witnessDist, Double.POSITIVE_INFINITY);
+        }
+
+        /**
+         * Contracts the vertices in order of priority. Contracting a vertex
+         * raises its neighbours' depth and level, so their priorities are
+         * updated from their last simulation without new witness searches.
+         * The full priority is recomputed only as a vertex comes off the
+         * queue, and the vertex is put back if it is no longer the cheapest.
+         * Recomputing every neighbour in full is quadratic in the degree of
+         * the dense core that is left at the end.
+         */
+        private ContractionHierarchy contract() {
+            Heap order = new Heap();
+            double[] priorities = new double[n];
+            for (int v = 0; v < n; v++) {
+                priorities[v] = priority(v);
+                order.push(v, priorities[v]);
+            }
+            int[] rank = new int[n];
+            int next = 0;
+            while (!order.isEmpty()) {
+                double key = order.minKey();
+                int v = order.pop();
+                if (contracted[v] || key != priorities[v]) {
+                    continue;
+                }
+                priorities[v] = priority(v);
+                if (!order.isEmpty() && priorities[v] > order.minKey()) {
+                    order.push(v, priorities[v]);
+                    continue;
+                }
+                contractVertex(v, true);
+                rank[v] = next;
+                next++;
+
+                for (int i = 0; i < out[v].size; i++) {
+                    update(edgeTo[out[v].values[i]], priorities, order);
+                }
+                for (int i = 0; i < in[v].size; i++) {
+                    update(edgeFrom[in[v].values[i]], priorities, order);
+                }
+            }
+            return freeze(rank);
+        }
+
+        /** Updates the priority of V, if it is not yet contracted, with its
+          * current depth and level and its last simulated contraction. */
+        private void update(int v, double[] priorities, Heap order) {
+            if (!contracted[v]) {
+                priorities[v] = combine(v);
+                order.push(v, priorities[v]);
+            }
+        }
+
+        /** Simulates contracting V and returns its priority. */
+        private double priority(int v) {
+            removedOf[v] = out[v].size + in[v].size;
+            shortcutsOf[v] = contractVertex(v, false);
+            return combine(v);
+        }
+
+        /** Returns the priority of V: the shortcuts contracting it would add
+          * less the edges it would remove, weighted most, then its depth and
+          * its level. */
+        private double combine(int v) {
+            return 4.0 * (shortcutsOf[v] - removedOf[v]) + 2.0 * depth[v] + level[v];
+        }
+
+        /**
+         * Counts the shortcuts needed to remove V, and if CONTRACT is set,
+         * adds them and marks V contracted. A path u -> v -> w needs one
+         * unless a witness search from u finds a path to w no longer than it
+         * that avoids v. Simulations search less far than contractions.
+         */
+        private int contractVertex(int v, boolean contract) {
+            int shortcuts = 0;
+            double maxOut = 0;
+            int targets = 0;
+            targetStamp++;
+            for (int j = 0; j < out[v].size; j++) {
+                int w = edgeTo[out[v].values[j]];
+                maxOut = Math.max(maxOut, edgeWeight[out[v].values[j]]);
+                if (targetMark[w] != targetStamp) {
+                    targetMark[w] = targetStamp;
+                    targets++;
+                }
+            }
+            int settleLimit = contract ? CONTRACTION_SETTLE_LIMIT : SIMULATION_SETTLE_LIMIT;
+            for (int i = 0; i < in[v].size; i++) {
+                int a = in[v].values[i];
+                int u = edgeFrom[a];
+                int uTargets = targetMark[u] == targetStamp ? targets - 1 : targets;
+                witness(u, v, edgeWeight[a] + maxOut, uTargets, settleLimit);
+                for (int j = 0; j < out[v].size; j++) {
+                    int b = out[v].values[j];
+                    int w = edgeTo[b];
+                    if (w == u) {
+                        continue;
+                    }
+                    double via = edgeWeight[a] + edgeWeight[b];
+                    if (witnessDist[w] > via) {
+                        shortcuts++;
+                        if (contract) {
+                            addShortcut(u, w, via, a, b);
+                        }
+                    }
+                }
+                clearWitness();
+            }
+
+            if (contract) {
+                // v's own lists are kept for freeze; its neighbours forget it.
+                contracted[v] = true;
+                for (int i = 0; i < out[v].size; i++) {
+                    int e = out[v].values[i];
+                    raise(edgeTo[e], v);
+                    in[edgeTo[e]].removeValue(e);
+                }
+                for (int i = 0; i < in[v].size; i++) {
+                    int e = in[v].values[i];
+                    raise(edgeFrom[e], v);
+                    out[edgeFrom[e]].removeValue(e);
+                }
+            }
+            return shortcuts;
+        }
+
+        /** Records that X's neighbour V was contracted. */
+        private void raise(int x, int v) {
+            depth[x]++;
+            level[x] = Math.max(level[x], level[v] + 1);
+        }
+
+        /** Runs Dijkstra from U among the uncontracted vertices other than
+          * AVOID, up to distance LIMIT, SETTLE_LIMIT vertices, or until all
+          * TARGETS marked vertices other than U are settled. */
+        private void witness(int u, int avoid, double limit, int targets, int settleLimit) {
+            witnessDist[u] = 0.0;
+            witnessTouched.add(u);
+            witnessFringe.push(u, 0.0);
+            int settled = 0;
+            while (!witnessFringe.isEmpty() && settled < settleLimit && targets > 0) {
+                double d = witnessFringe.minKey();
+                if (d > limit) {
+                    break;
+                }
+                int p = witnessFringe.pop();
+                if (d > witnessDist[p]) {
+                    continue;
+                }
+                settled++;
+                if (targetMark[p] == targetStamp && p != u) {
+                    targets--;
+                }
+                for (int i = 0; i < out[p].size; i++) {
+                    int e = out[p].values[i];
+                    int q = edgeTo[e];
+                    if (q == avoid) {
+                        continue;
+                    }
+                    double newDist = d + edgeWeight[e];
+                    if (newDist < witnessDist[q]) {
+                        if (witnessDist[q] == Double.POSITIVE_INFINITY) {
+                            witnessTouched.add(q);
+                        }
+                        witnessDist[q] = newDist;
+                        witnessFringe.push(q, newDist);
+                    }
+                }
+            }
+        }
+
+        private void clearWitness() {
+            for (int i = 0; i < witnessTouched.size; i++) {
+                witnessDist[witnessTouched.values[i]] = Double.POSITIVE_INFINITY;
+            }
+            witnessTouched.size = 0;
+            witnessFringe.size = 0;
+        }
+
+        /** Adds the shortcut U -> W of weight WEIGHT standing for edges FIRST
+          * and SECOND. It replaces any longer edge U -> W in the lists; the
+          * old edge is kept in case another shortcut refers to it. */
+        private void addShortcut(int u, int w, double weight, int first, int second) {
+            addEdge(u, w, weight, first, second);
+            // The new edge is last in out[u], so it is not a candidate.
+            for (int i = 0; i < out[u].size - 1; i++) {
+                int e = out[u].values[i];
+                if (edgeTo[e] == w && edgeWeight[e] > weight) {
+                    out[u].remove(i);
+                    in[w].removeValue(e);
+                    return;
+                }
+            }
+        }
+
+        /** Adds an edge and returns its id. */
+        private int addEdge(int from, int to, double weight, int first, int second) {
+            if (numEdges == edgeFrom.length) {
+                int capacity = 2 * numEdges;
+                edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+                edgeTo = Arrays.copyOf(edgeTo, capacity);
+                edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+                edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+                edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+            }
+            int e = numEdges;
+            edgeFrom[e] = from;
+            edgeTo[e] = to;
+            edgeWeight[e] = weight;
+            edgeFirst[e] = first;
+            edgeSecond[e] = second;
+            numEdges++;
+            out[from].add(e);
+            in[to].add(e);
+            return e;
+        }
+
+        /** Splits the final edge lists by RANK into upward and downward
+          * compressed sparse row arrays. */
+        private ContractionHierarchy freeze(int[] rank) {
+            int[] upOffsets = new int[n + 1];
+            int[] downOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                int up = 0;
+                for (int i = 0; i < out[v].size; i++) {
+                    if (rank[edgeTo[out[v].values[i]]] > rank[v]) {
+                        up++;
+                    }
+                }
+                int down = 0;
+                for (int i = 0; i < in[v].size; i++) {
+                    if (rank[edgeFrom[in[v].values[i]]] > rank[v]) {
+                        down++;
+                    }
+                }
+                upOffsets[v + 1] = upOffsets[v] + up;
+                downOffsets[v + 1] = downOffsets[v] + down;
+            }
+            int[] upEdges = new int[upOffsets[n]];
+            int[] downEdges = new int[downOffsets[n]];
+            for (int v = 0; v < n; v++) {
+                int up = upOffsets[v];
+                for (int i = 0; i < out[v].size; i++) {
+                    int e = out[v].values[i];
+                    if (rank[edgeTo[e]] > rank[v]) {
+                        upEdges[up] = e;
+                        up++;
+                    }
+                }
+                int down = downOffsets[v];
+                for (int i = 0; i < in[v].size; i++) {
+                    int e = in[v].values[i];
+                    if (rank[edgeFrom[e]] > rank[v]) {
+                        downEdges[down] = e;
+                        down++;
+                    }
+                }
+            }
+            return new ContractionHierarchy(fingerprint(g), ids, rank,
+                    Arrays.copyOf(edgeFrom, numEdges), Arrays.copyOf(edgeTo, numEdges),
+                    Arrays.copyOf(edgeWeight, numEdges), Arrays.copyOf(edgeFirst, numEdges),
+                    Arrays.copyOf(edgeSecond, numEdges), upOffsets, upEdges, downOffsets, downEdges);
+        }
+    }
+
+    /** A growable list of ints. */
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size = 0;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, 2 * size);
+            }
+            values[size] = value;
+            size++;
+        }
+
+        /** Removes the value at position I by moving the last value there. */
+        private void remove(int i) {
+            size--;
+            values[i] = values[size];
+        }
+
+        private void removeValue(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    remove(i);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A binary min-heap of int items keyed by doubles. It has no
+     * decrease-key: an item is pushed again with its smaller key, and
+     * callers skip entries whose key is out of date when they pop them.
+     */
+    private static class Heap {
+        private int[] items = new int[64];
+        private double[] keys = new double[64];
+        private int size = 0;
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private double minKey() {
+            return keys[0];
+        }
+
+        private void push(int item, double key) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, 2 * size);
+                keys = Arrays.copyOf(keys, 2 * size);
+            }
+            int pos = size;
+            size++;
+            while (pos > 0) {
+                int parent = (pos - 1) >>> 1;
+                if (key >= keys[parent]) {
+                    break;
+                }
+                items[pos] = items[parent];
+                keys[pos] = keys[parent];
+                pos = parent;
+            }
+            items[pos] = item;
+            keys[pos] = key;
+        }
+
+        private int pop() {
+            int min = items[0];
+            size--;
+            int item = items[size];
+            double key = keys[size];
+            int pos = 0;
+            int half = size >>> 1;
+            while (pos < half) {
+                int child = 2 * pos + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                items[pos] = items[child];
+                keys[pos] = keys[child];
+                pos = child;
+            }
+            items[pos] = item;
+            keys[pos] = key;
+            return min;
+        }
+    }
+}
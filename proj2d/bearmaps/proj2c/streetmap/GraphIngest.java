@@ -0,0 +1,276 @@
+package bearmaps.proj2c.streetmap;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds a StreetMapGraph from an OSM XML file in separate phases, instead
+ * of adding every edge as its way is parsed, as GraphBuildingHandler does.
+ * The resulting graph is the same.
+ *
+ * PARSE streams the file once. Nodes are appended to primitive arrays, and
+ * each pair of consecutive nodes on an allowed way is recorded as an edge by
+ * OSM id. RESOLVE maps the ids to node positions. WEIGH computes every
+ * edge's great-circle length in parallel, now that all coordinates are
+ * known. ASSEMBLE creates the graph's nodes and edges in one pass, and CLEAN
+ * removes unnamed nodes that have no edges. The time each phase took is
+ * kept for reporting.
+ */
+public class GraphIngest {
+    /** The phases of an ingest, in the order they run. */
+    public enum Phase { PARSE, RESOLVE, WEIGH, ASSEMBLE, CLEAN }
+
+    /** Road types that are kept; the same as in GraphBuildingHandler. */
+    private static final Set<String> ALLOWED_HIGHWAY_TYPES = new HashSet<>(Arrays.asList
+            ("motorway", "trunk", "primary", "secondary", "tertiary", "unclassified",
+                    "residential", "living_street", "motorway_link", "trunk_link", "primary_link",
+                    "secondary_link", "tertiary_link"));
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final double[] phaseSeconds = new double[Phase.values().length];
+
+    /* Nodes, in file order. */
+    private int numNodes = 0;
+    private long[] nodeIds = new long[INITIAL_CAPACITY];
+    private double[] lats = new double[INITIAL_CAPACITY];
+    private double[] lons = new double[INITIAL_CAPACITY];
+    private String[] nodeNames = new String[INITIAL_CAPACITY];
+
+    /* Undirected edges by OSM id, each with the name of its way. */
+    private int numEdges = 0;
+    private long[] edgeFromIds = new long[INITIAL_CAPACITY];
+    private long[] edgeToIds = new long[INITIAL_CAPACITY];
+    private String[] edgeNames = new String[INITIAL_CAPACITY];
+
+    /* Set by RESOLVE and WEIGH; a position of -1 means the node is unknown. */
+    private int[] edgeFrom;
+    private int[] edgeTo;
+    private double[] weights;
+
+    /** Reads the OSM XML file at FILENAME and returns the cleaned graph. */
+    public StreetMapGraph ingest(String filename)
+            throws IOException, SAXException, ParserConfigurationException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(filename), 1 << 16)) {
+            return ingest(in);
+        }
+    }
+
+    /** Reads OSM XML from IN and returns the cleaned graph. */
+    public StreetMapGraph ingest(InputStream in)
+            throws IOException, SAXException, ParserConfigurationException {
+        numNodes = 0;
+        numEdges = 0;
+        long start = System.nanoTime();
+        SAXParserFactory.newInstance().newSAXParser().parse(in, new Handler());
+        start = endPhase(Phase.PARSE, start);
+
+        Map<Long, Integer> position = resolve();
+        start = endPhase(Phase.RESOLVE, start);
+
+        weigh();
+        start = endPhase(Phase.WEIGH, start);
+
+        StreetMapGraph g = assemble(position);
+        start = endPhase(Phase.ASSEMBLE, start);
+
+        g.clean();
+        endPhase(Phase.CLEAN, start);
+        return g;
+    }
+
+    /** Returns the time in seconds that PHASE took in the last ingest. */
+    public double phaseTime(Phase phase) {
+        return phaseSeconds[phase.ordinal()];
+    }
+
+    /** Returns one line listing the time taken by each phase. */
+    public String timings() {
+        StringBuilder sb = new StringBuilder();
+        double total = 0;
+        for (Phase phase : Phase.values()) {
+            sb.append(String.format("%s %.3f s, ", phase.name().toLowerCase(), phaseTime(phase)));
+            total += phaseTime(phase);
+        }
+        sb.append(String.format("total %.3f s (%d nodes, %d edges)", total, numNodes, numEdges));
+        return sb.toString();
+    }
+
+    private long endPhase(Phase phase, long start) {
+        long now = System.nanoTime();
+        phaseSeconds[phase.ordinal()] = (now - start) / 1e9;
+        return now;
+    }
+
+    /** Maps each node id to the position of its first occurrence, and each
+      * edge endpoint to a position. */
+    private Map<Long, Integer> resolve() {
+        Map<Long, Integer> position = new HashMap<>(2 * numNodes);
+        for (int i = 0; i < numNodes; i++) {
+            position.putIfAbsent(nodeIds[i], i);
+        }
+        edgeFrom = new int[numEdges];
+        edgeTo = new int[numEdges];
+        for (int e = 0; e < numEdges; e++) {
+            edgeFrom[e] = position.getOrDefault(edgeFromIds[e], -1);
+            edgeTo[e] = position.getOrDefault(edgeToIds[e], -1);
+        }
+        return position;
+    }
+
+    /** Computes the length of every edge whose endpoints are both known. */
+    private void weigh() {
+        weights = new double[numEdges];
+        Arrays.parallelSetAll(weights, e -> {
+            int from = edgeFrom[e];
+            int to = edgeTo[e];
+            if (from < 0 || to < 0) {
+                return 0.0;
+            }
+            return StreetMapGraph.distance(lons[from], lons[to], lats[from], lats[to]);
+        });
+    }
+
+    /** Creates the graph from the parsed nodes and weighed edges. */
+    private StreetMapGraph assemble(Map<Long, Integer> position) {
+        StreetMapGraph g = new StreetMapGraph();
+        for (int i = 0; i < numNodes; i++) {
+            if (position.get(nodeIds[i]) == i) {
+                Node node = Node.of(nodeIds[i], lats[i], lons[i]);
+                node.setName(nodeNames[i]);
+                g.addNode(node);
+            }
+        }
+        for (int e = 0; e < numEdges; e++) {
+            if (edgeFrom[e] >= 0 && edgeTo[e] >= 0) {
+                long from = edgeFromIds[e];
+                long to = edgeToIds[e];
+                g.addWeightedEdge(from, to, weights[e], edgeNames[e]);
+                g.addWeightedEdge(to, from, weights[e], edgeNames[e]);
+            }
+        }
+        return g;
+    }
+
+    private void addNode(long id, double lat, double lon) {
+        if (numNodes == nodeIds.length) {
+            int capacity = 2 * numNodes;
+            nodeIds = Arrays.copyOf(nodeIds, capacity);
+            lats = Arrays.copyOf(lats, capacity);
+            lons = Arrays.copyOf(lons, capacity);
+            nodeNames = Arrays.copyOf(nodeNames, capacity);
+        }
+        nodeIds[numNodes] = id;
+        lats[numNodes] = lat;
+        lons[numNodes] = lon;
+        nodeNames[numNodes] = null;
+        numNodes++;
+    }
+
+    private void addEdge(long fromId, long toId, String name) {
+        if (numEdges == edgeFromIds.length) {
+            int capacity = 2 * numEdges;
+            edgeFromIds = Arrays.copyOf(edgeFromIds, capacity);
+            edgeToIds = Arrays.copyOf(edgeToIds, capacity);
+            edgeNames = Arrays.copyOf(edgeNames, capacity);
+        }
+        edgeFromIds[numEdges] = fromId;
+        edgeToIds[numEdges] = toId;
+        edgeNames[numEdges] = name;
+        numEdges++;
+    }
+
+    /** The PARSE phase: appends nodes and way edges as elements stream past. */
+    private class Handler extends DefaultHandler {
+        private static final int NONE = 0, NODE = 1, WAY = 2;
+
+        private int active = NONE;
+        private boolean validWay = false;
+        private String wayName = "";
+        /* Node refs of the current way, reused across ways. */
+        private long[] wayRefs = new long[64];
+        private int numWayRefs = 0;
+
+        @Override
+        public void startElement(String uri, String localName, String qName,
+                                 Attributes attributes) {
+            switch (qName) {
+                case "node":
+                    active = NODE;
+                    addNode(Long.parseLong(attributes.getValue("id")),
+                            Double.parseDouble(attributes.getValue("lat")),
+                            Double.parseDouble(attributes.getValue("lon")));
+                    break;
+                case "way":
+                    active = WAY;
+                    validWay = false;
+                    wayName = "";
+                    numWayRefs = 0;
+                    break;
+                case "nd":
+                    if (active == WAY) {
+                        if (numWayRefs == wayRefs.length) {
+                            wayRefs = Arrays.copyOf(wayRefs, 2 * numWayRefs);
+                        }
+                        wayRefs[numWayRefs] = Long.parseLong(attributes.getValue("ref"));
+                        numWayRefs++;
+                    }
+                    break;
+                case "tag":
+                    String k = attributes.getValue("k");
+                    if (active == WAY) {
+                        if (k.equals("highway")) {
+                            validWay = ALLOWED_HIGHWAY_TYPES.contains(attributes.getValue("v"));
+                        } else if (k.equals("name")) {
+                            wayName = attributes.getValue("v");
+                        }
+                    } else if (active == NODE && k.equals("name")) {
+                        nodeNames[numNodes - 1] = attributes.getValue("v");
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (qName.equals("way")) {
+                if (validWay) {
+                    for (int i = 0; i < numWayRefs - 1; i++) {
+                        addEdge(wayRefs[i], wayRefs[i + 1], wayName);
+                    }
+                }
+                active = NONE;
+            } else if (qName.equals("node")) {
+                active = NONE;
+            }
+        }
+    }
+
+    /**
+     * Ingests the OSM XML file named by the first argument and prints the
+     * time taken by each phase. If a second argument is given, also writes
+     * the graph there as a snapshot.
+     */
+    public static void main(String[] args) throws Exception {
+        GraphIngest ingest = new GraphIngest();
+        StreetMapGraph g = ingest.ingest(args[0]);
+        System.out.println(ingest.timings());
+        if (args.length > 1) {
+            g.writeSnapshot(args[1]);
+        }
+    }
+}
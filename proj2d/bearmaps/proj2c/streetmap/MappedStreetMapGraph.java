@@ -0,0 +1,227 @@
+package bearmaps.proj2c.streetmap;
+
+import bearmaps.proj2c.AStarGraph;
+import bearmaps.proj2c.WeightedEdge;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only street graph served straight from a snapshot written by
+ * StreetMapGraph.writeSnapshot. Coordinates, adjacency and name references
+ * stay in a read-only memory mapping of the file, so they live in the OS
+ * page cache rather than on the Java heap, and every process that maps the
+ * same snapshot shares one copy. The heap holds only the deduplicated string
+ * table and an open-addressing table of slots, about 1.5 ints per node,
+ * whose ids are read back from the mapping.
+ *
+ * A single mapping is limited to 2 GB, which is enough for roughly ten
+ * million nodes and thirty million edges.
+ */
+public class MappedStreetMapGraph implements AStarGraph<Long> {
+    private static final int NO_SLOT = -1;
+
+    private final ByteBuffer buf;
+    private final int n, m;
+
+    /* Byte offsets of the snapshot's sections. */
+    private final int idsAt, latsAt, lonsAt, offsetsAt, targetsAt, weightsAt;
+    private final int nodeNamesAt, edgeNamesAt;
+
+    private final String[] strings;
+
+    /* Open-addressing table from OSM id to slot: table[i] is a slot plus
+     * one, or 0 if the entry is empty. An id is looked for from its bucket
+     * onwards, comparing against the ids of the slots found. */
+    private final int[] table;
+
+    /** Maps the snapshot at FILENAME. Throws IOException if it cannot be read,
+      * is not a snapshot, is truncated or has trailing bytes, or holds an
+      * offset, edge target or name index out of range. Every such check is
+      * made here, in one pass over the mapped arrays, so that queries never
+      * read outside them. */
+    public MappedStreetMapGraph(String filename) throws IOException {
+        long size;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            size = channel.size();
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (size < StreetMapGraph.SNAPSHOT_HEADER_BYTES
+                || buf.getInt(0) != StreetMapGraph.SNAPSHOT_MAGIC) {
+            throw new IOException("Not a street graph snapshot: " + filename);
+        }
+        n = buf.getInt(4);
+        m = buf.getInt(8);
+        if (n < 0 || m < 0 || StreetMapGraph.snapshotBytesBeforeStrings(n, m) + 4 > size) {
+            throw new IOException("Truncated street graph snapshot: " + filename);
+        }
+        idsAt = StreetMapGraph.SNAPSHOT_HEADER_BYTES;
+        latsAt = idsAt + 8 * n;
+        lonsAt = latsAt + 8 * n;
+        offsetsAt = lonsAt + 8 * n;
+        targetsAt = offsetsAt + 4 * (n + 1);
+        weightsAt = targetsAt + 4 * m;
+        nodeNamesAt = weightsAt + 8 * m;
+        edgeNamesAt = nodeNamesAt + 4 * n;
+
+        ByteBuffer stringsBuf = buf.duplicate();
+        stringsBuf.position(edgeNamesAt + 4 * m);
+        strings = StreetMapGraph.readStrings(stringsBuf, filename);
+        if (stringsBuf.hasRemaining()) {
+            throw new IOException("Trailing bytes in street graph snapshot: " + filename);
+        }
+        checkOffsets(filename);
+        checkIndices(targetsAt, m, 0, n, filename);
+        checkIndices(nodeNamesAt, n, -1, strings.length, filename);
+        checkIndices(edgeNamesAt, m, -1, strings.length, filename);
+
+        table = new int[n + n / 2 + 1];
+        for (int slot = 0; slot < n; slot++) {
+            int i = bucket(idAt(slot));
+            while (table[i] != 0) {
+                i = next(i);
+            }
+            table[i] = slot + 1;
+        }
+    }
+
+    /** Checks that the mapped offsets start at 0, never decrease and end at
+      * m, as StreetMapGraph.checkOffsets does for a copied array. */
+    private void checkOffsets(String filename) throws IOException {
+        int previous = 0;
+        for (int i = 0; i <= n; i++) {
+            int offset = buf.getInt(offsetsAt + 4 * i);
+            if (offset < previous || (i == 0 && offset != 0)) {
+                throw new IOException("Damaged file: " + filename);
+            }
+            previous = offset;
+        }
+        if (previous != m) {
+            throw new IOException("Damaged file: " + filename);
+        }
+    }
+
+    /** Checks that each of the COUNT ints mapped from byte AT is at least LO
+      * and below HI. */
+    private void checkIndices(int at, int count, int lo, int hi, String filename)
+            throws IOException {
+        for (int i = 0; i < count; i++) {
+            int v = buf.getInt(at + 4 * i);
+            if (v < lo || v >= hi) {
+                throw new IOException("Damaged file: " + filename);
+            }
+        }
+    }
+
+    /** Returns the table entry an id's search starts at: the top 32 bits of
+      * its hash, scaled to the table's length. */
+    private int bucket(long id) {
+        long hash = (id * 0x9E3779B97F4A7C15L) >>> 32;
+        return (int) ((hash * table.length) >>> 32);
+    }
+
+    private int next(int i) {
+        i++;
+        return i == table.length ? 0 : i;
+    }
+
+    /** Returns the slot of the node with the given ID, or -1 if there is none. */
+    public int slotOf(long id) {
+        for (int i = bucket(id); table[i] != 0; i = next(i)) {
+            int slot = table[i] - 1;
+            if (idAt(slot) == id) {
+                return slot;
+            }
+        }
+        return NO_SLOT;
+    }
+
+    /** Returns the slot of V, throwing an IllegalArgumentException if V is
+      * not in the graph. */
+    private int requireSlot(long v) {
+        int slot = slotOf(v);
+        if (slot == NO_SLOT) {
+            throw new IllegalArgumentException("No node with id " + v + ".");
+        }
+        return slot;
+    }
+
+    /** Returns the number of nodes in the graph. */
+    public int numVertices() {
+        return n;
+    }
+
+    /** Returns the OSM id of the node in SLOT. */
+    public long idAt(int slot) {
+        return buf.getLong(idsAt + 8 * slot);
+    }
+
+    /**
+     * Returns a list of outgoing edges for V. Throws an
+     * IllegalArgumentException if V is not in this graph.
+     **/
+    @Override
+    public List<WeightedEdge<Long>> neighbors(Long v) {
+        int slot = requireSlot(v);
+        int first = buf.getInt(offsetsAt + 4 * slot);
+        int last = buf.getInt(offsetsAt + 4 * (slot + 1));
+        List<WeightedEdge<Long>> incidentList = new ArrayList<>(last - first);
+        for (int e = first; e < last; e++) {
+            long to = idAt(buf.getInt(targetsAt + 4 * e));
+            WeightedEdge<Long> edge = new WeightedEdge<>(v, to, buf.getDouble(weightsAt + 8 * e));
+            edge.setName(string(buf.getInt(edgeNamesAt + 4 * e)));
+            incidentList.add(edge);
+        }
+        return incidentList;
+    }
+
+    /**
+     * Returns the great-circle distance between S and GOAL. Throws an
+     * IllegalArgumentException if either is not in this graph.
+     */
+    @Override
+    public double estimatedDistanceToGoal(Long s, Long goal) {
+        int sSlot = requireSlot(s);
+        int goalSlot = requireSlot(goal);
+        return StreetMapGraph.distance(lonAt(sSlot), lonAt(goalSlot),
+                latAt(sSlot), latAt(goalSlot));
+    }
+
+    /** Returns the longitude of vertex V, or 0.0 if it is not in the graph. */
+    public double lon(long v) {
+        int slot = slotOf(v);
+        return slot == NO_SLOT ? 0.0 : lonAt(slot);
+    }
+
+    /** Returns the latitude of vertex V, or 0.0 if it is not in the graph. */
+    public double lat(long v) {
+        int slot = slotOf(v);
+        return slot == NO_SLOT ? 0.0 : latAt(slot);
+    }
+
+    /** Returns the name of vertex V, or null if it has none or is not in
+      * the graph. */
+    public String name(long v) {
+        int slot = slotOf(v);
+        return slot == NO_SLOT ? null : string(buf.getInt(nodeNamesAt + 4 * slot));
+    }
+
+    private double latAt(int slot) {
+        return buf.getDouble(latsAt + 8 * slot);
+    }
+
+    private double lonAt(int slot) {
+        return buf.getDouble(lonsAt + 8 * slot);
+    }
+
+    private String string(int index) {
+        return index < 0 ? null : strings[index];
+    }
+}
@@ -5,22 +5,51 @@ import bearmaps.proj2c.WeightedEdge;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 public class StreetMapGraph implements AStarGraph<Long> {
+    /** File name suffix of binary snapshots written by writeSnapshot. */
+    public static final String SNAPSHOT_SUFFIX = ".snapshot";
+    /** Marks the start of a snapshot file: "SMG" and the format version. */
+    static final int SNAPSHOT_MAGIC = 0x534D4701;
+    /** Size in bytes of a snapshot's header: magic, N and M. */
+    static final int SNAPSHOT_HEADER_BYTES = 12;
+
     private Map<Long, Node> nodes = new HashMap<>();
     private Map<Long, Set<WeightedEdge<Long>>> neighbors = new HashMap<>();
 
-    private StreetMapGraph() {
+    StreetMapGraph() {
     }
 
+    /**
+     * Loads the graph in FILENAME: a snapshot if the name ends with
+     * SNAPSHOT_SUFFIX, and otherwise an OSM XML file. Throws an
+     * UncheckedIOException if a snapshot cannot be read or is damaged.
+     */
     public StreetMapGraph(String filename) {
-        StreetMapGraph smg = StreetMapGraph.readFromXML(filename);
+        StreetMapGraph smg;
+        if (filename.endsWith(SNAPSHOT_SUFFIX)) {
+            try {
+                smg = StreetMapGraph.readFromSnapshot(filename);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            smg = StreetMapGraph.readFromXML(filename);
+        }
         this.nodes = smg.nodes;
         this.neighbors = smg.neighbors;
     }
@@ -66,25 +95,266 @@ public class StreetMapGraph implements AStarGraph<Long> {
 
     /**
      * Factory method. Creates and returns a graph from an OSM XML
-     * file. Assumes file is correctly formatted.
+     * file. Assumes file is correctly formatted. See GraphIngest.
      */
     private static StreetMapGraph readFromXML(String filename) {
-        StreetMapGraph smg = new StreetMapGraph();
         try {
-            File inputFile = new File(filename);
-            FileInputStream inputStream = new FileInputStream(inputFile);
-            SAXParserFactory factory = SAXParserFactory.newInstance();
-            SAXParser saxParser = factory.newSAXParser();
-            GraphBuildingHandler gbh = new GraphBuildingHandler(smg);
-            saxParser.parse(inputStream, gbh);
+            return new GraphIngest().ingest(filename);
         } catch (ParserConfigurationException | SAXException | IOException e) {
             e.printStackTrace();
         }
+        return new StreetMapGraph();
+    }
+
+    /**
+     * Writes this graph to FILENAME as a binary snapshot, which
+     * readFromSnapshot loads far faster than the XML it came from. All
+     * values are big-endian:
+     * -int magic, int N (nodes), int M (edges)
+     * -long[N] ids, double[N] lats, double[N] lons
+     * -int[N + 1] offsets; the edges out of node i are offsets[i] up to
+     *  offsets[i + 1] - 1
+     * -int[M] edge targets (node positions), double[M] edge weights
+     * -int[N] node names and int[M] edge names, as positions in the string
+     *  table, or -1 for none
+     * -int S, then S strings, each an int byte length and UTF-8 bytes
+     * The file is written under a temporary name and then renamed, so readers
+     * never see a partly written snapshot.
+     */
+    public void writeSnapshot(String filename) throws IOException {
+        int n = nodes.size();
+        long[] ids = new long[n];
+        Map<Long, Integer> position = new HashMap<>();
+        int i = 0;
+        for (long id : nodes.keySet()) {
+            ids[i] = id;
+            position.put(id, i);
+            i++;
+        }
+
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<WeightedEdge<Long>> edges = new ArrayList<>();
+        int[] offsets = new int[n + 1];
+        for (i = 0; i < n; i++) {
+            edges.addAll(neighbors.get(ids[i]));
+            offsets[i + 1] = edges.size();
+        }
+
+        writeAtomically(filename, out -> {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(n);
+            out.writeInt(edges.size());
+            for (long id : ids) {
+                out.writeLong(id);
+            }
+            for (long id : ids) {
+                out.writeDouble(nodes.get(id).lat());
+            }
+            for (long id : ids) {
+                out.writeDouble(nodes.get(id).lon());
+            }
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (WeightedEdge<Long> e : edges) {
+                out.writeInt(position.get(e.to()));
+            }
+            for (WeightedEdge<Long> e : edges) {
+                out.writeDouble(e.weight());
+            }
+            for (long id : ids) {
+                out.writeInt(internString(nodes.get(id).name(), strings, stringIndex));
+            }
+            for (WeightedEdge<Long> e : edges) {
+                out.writeInt(internString(e.getName(), strings, stringIndex));
+            }
+            out.writeInt(strings.size());
+            for (String str : strings) {
+                byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        });
+    }
+
+    /** Writes the contents of a file to a DataOutputStream. */
+    interface FileContents {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Writes CONTENTS to a temporary file next to FILENAME, then renames it
+     * to FILENAME in one step, replacing any file already there. A process
+     * that dies part way, or another process writing the same file, cannot
+     * leave a truncated file under FILENAME.
+     */
+    static void writeAtomically(String filename, FileContents contents) throws IOException {
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(),
+                target.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                contents.writeTo(out);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Returns the position of S in STRINGS, appending it if new, or -1 if
+      * S is null. */
+    private static int internString(String s, List<String> strings,
+                                    Map<String, Integer> stringIndex) {
+        if (s == null) {
+            return -1;
+        }
+        Integer index = stringIndex.get(s);
+        if (index == null) {
+            index = strings.size();
+            strings.add(s);
+            stringIndex.put(s, index);
+        }
+        return index;
+    }
 
-        smg.clean();
+    /**
+     * Factory method. Creates and returns a graph from a snapshot written by
+     * writeSnapshot, reading the file through a memory mapping. The snapshot
+     * holds an already cleaned graph. Throws IOException if the file cannot
+     * be read, or is truncated or otherwise not a whole snapshot.
+     */
+    private static StreetMapGraph readFromSnapshot(String filename) throws IOException {
+        StreetMapGraph smg = new StreetMapGraph();
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.remaining() < SNAPSHOT_HEADER_BYTES || buf.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a street graph snapshot: " + filename);
+            }
+            int n = buf.getInt();
+            int m = buf.getInt();
+            if (n < 0 || m < 0 || snapshotBytesBeforeStrings(n, m) + 4 > channel.size()) {
+                throw new IOException("Truncated street graph snapshot: " + filename);
+            }
+            long[] ids = new long[n];
+            double[] lats = new double[n];
+            double[] lons = new double[n];
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[m];
+            double[] weights = new double[m];
+            int[] nodeNames = new int[n];
+            int[] edgeNames = new int[m];
+            getLongs(buf, ids);
+            getDoubles(buf, lats);
+            getDoubles(buf, lons);
+            getInts(buf, offsets);
+            getInts(buf, targets);
+            getDoubles(buf, weights);
+            getInts(buf, nodeNames);
+            getInts(buf, edgeNames);
+            String[] strings = readStrings(buf, filename);
+            if (buf.hasRemaining()) {
+                throw new IOException("Trailing bytes in street graph snapshot: " + filename);
+            }
+            checkOffsets(offsets, m, filename);
+            checkIndices(targets, 0, n, filename);
+            checkIndices(nodeNames, -1, strings.length, filename);
+            checkIndices(edgeNames, -1, strings.length, filename);
+
+            smg.nodes = new HashMap<>(2 * n);
+            smg.neighbors = new HashMap<>(2 * n);
+            for (int i = 0; i < n; i++) {
+                Node node = Node.of(ids[i], lats[i], lons[i]);
+                if (nodeNames[i] >= 0) {
+                    node.setName(strings[nodeNames[i]]);
+                }
+                Set<WeightedEdge<Long>> edgeSet = new HashSet<>();
+                for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                    WeightedEdge<Long> edge = new WeightedEdge<>(ids[i], ids[targets[e]], weights[e]);
+                    if (edgeNames[e] >= 0) {
+                        edge.setName(strings[edgeNames[e]]);
+                    }
+                    edgeSet.add(edge);
+                }
+                smg.nodes.put(ids[i], node);
+                smg.neighbors.put(ids[i], edgeSet);
+            }
+        }
         return smg;
     }
 
+    /** Returns the size in bytes of a snapshot of N nodes and M edges, up to
+      * the start of its string table. */
+    static long snapshotBytesBeforeStrings(int n, int m) {
+        return SNAPSHOT_HEADER_BYTES + 3 * 8L * n + 4L * (n + 1) + 4L * m + 8L * m
+                + 4L * n + 4L * m;
+    }
+
+    /** Reads the string table at BUF's position, checking every length
+      * against the bytes left in the file FILENAME. */
+    static String[] readStrings(ByteBuffer buf, String filename) throws IOException {
+        if (buf.remaining() < 4) {
+            throw new IOException("Truncated street graph snapshot: " + filename);
+        }
+        int count = buf.getInt();
+        if (count < 0 || 4L * count > buf.remaining()) {
+            throw new IOException("Truncated street graph snapshot: " + filename);
+        }
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = buf.remaining() < 4 ? -1 : buf.getInt();
+            if (length < 0 || length > buf.remaining()) {
+                throw new IOException("Truncated street graph snapshot: " + filename);
+            }
+            byte[] bytes = new byte[length];
+            buf.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    /** Checks that OFFSETS start at 0, never decrease and end at M, as the
+      * offsets of M items in compressed sparse row form must. */
+    static void checkOffsets(int[] offsets, int m, String filename) throws IOException {
+        if (offsets[0] != 0 || offsets[offsets.length - 1] != m) {
+            throw new IOException("Damaged file: " + filename);
+        }
+        for (int i = 0; i + 1 < offsets.length; i++) {
+            if (offsets[i] > offsets[i + 1]) {
+                throw new IOException("Damaged file: " + filename);
+            }
+        }
+    }
+
+    /** Checks that every value in VALUES is at least LO and below HI. */
+    static void checkIndices(int[] values, int lo, int hi, String filename) throws IOException {
+        for (int v : values) {
+            if (v < lo || v >= hi) {
+                throw new IOException("Damaged file: " + filename);
+            }
+        }
+    }
+
+    /* Bulk readers that fill an array from BUF and advance its position. */
+
+    static void getLongs(ByteBuffer buf, long[] dst) {
+        buf.asLongBuffer().get(dst);
+        buf.position(buf.position() + 8 * dst.length);
+    }
+
+    static void getDoubles(ByteBuffer buf, double[] dst) {
+        buf.asDoubleBuffer().get(dst);
+        buf.position(buf.position() + 8 * dst.length);
+    }
+
+    static void getInts(ByteBuffer buf, int[] dst) {
+        buf.asIntBuffer().get(dst);
+        buf.position(buf.position() + 4 * dst.length);
+    }
+
     /** Adds a node to this graph, if it doesn't yet exist. **/
     void addNode(Node node) {
         if (!nodes.containsKey(node.id())) {
@@ -109,11 +379,20 @@ public class StreetMapGraph implements AStarGraph<Long> {
         }
     }
 
+    /** Adds an edge of the given WEIGHT to this graph, assuming FROMID and
+     *  TOID are in this graph.
+     **/
+    void addWeightedEdge(long fromID, long toID, double weight, String name) {
+        WeightedEdge<Long> weightedEdge = new WeightedEdge<>(fromID, toID, weight);
+        weightedEdge.setName(name);
+        neighbors.get(fromID).add(weightedEdge);
+    }
+
     /**
      * Removes vertices with 0 out-degree from graph. Note that this will
      * cause issues if edges are not bidirectional.
      **/
-    private void clean() {
+    void clean() {
         List<Long> toRemove = new ArrayList<>();
         for (long id : nodes.keySet()) {
             if (neighbors(id).size() == 0 && nodes.get(id).name() == null) {
@@ -179,7 +458,7 @@ public class StreetMapGraph implements AStarGraph<Long> {
      *
      * @source Kevin Lowe & Antares Chen, and https://www.movable-type.co.uk/scripts/latlong.html
      **/
-    private double distance(double lonV, double lonW, double latV, double latW) {
+    static double distance(double lonV, double lonW, double latV, double latW) {
         double phi1 = Math.toRadians(latV);
         double phi2 = Math.toRadians(latW);
         double dphi = Math.toRadians(latW - latV);
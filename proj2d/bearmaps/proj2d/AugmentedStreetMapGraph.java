@@ -2,6 +2,7 @@ package bearmaps.proj2d;
 
 import bearmaps.proj2ab.Point;
 import bearmaps.proj2ab.WeirdPointSet;
+import bearmaps.proj2c.streetmap.ContractionHierarchy;
 import bearmaps.proj2c.streetmap.StreetMapGraph;
 import bearmaps.proj2c.streetmap.Node;
 
@@ -21,6 +22,7 @@ import java.util.LinkedList;
 public class AugmentedStreetMapGraph extends StreetMapGraph {
     private Map<Point, Node> map;
     private WeirdPointSet tree;
+    private ContractionHierarchy hierarchy;
 
     public AugmentedStreetMapGraph(String dbPath) {
         super(dbPath);
@@ -59,6 +61,23 @@ public class AugmentedStreetMapGraph extends StreetMapGraph {
     }
 
 
+    /**
+     * Returns the contraction hierarchy built for this graph, or null if
+     * there is none.
+     */
+    public ContractionHierarchy hierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Sets the contraction hierarchy that Router uses for this graph. It must
+     * have been built from this graph, or from a graph read from the same file.
+     */
+    public void setHierarchy(ContractionHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+    }
+
+
     /**
      * For Project Part III (gold points)
      * In linear time, collect all the names of OSM locations that prefix-match the query string.
@@ -1,8 +1,13 @@
 package bearmaps.proj2d;
 
+import bearmaps.proj2c.streetmap.ContractionHierarchy;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
 import bearmaps.proj2d.server.handler.APIRouteHandler;
 import bearmaps.proj2d.utils.Constants;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -21,7 +26,8 @@ public class MapServerInitializer {
      **/
     public static void initializeServer(Map<String, APIRouteHandler> apiHandlers){
 
-        Constants.SEMANTIC_STREET_GRAPH = new AugmentedStreetMapGraph(Constants.OSM_DB_PATH);
+        Constants.SEMANTIC_STREET_GRAPH = loadGraph(Constants.OSM_DB_PATH);
+        loadHierarchy(Constants.SEMANTIC_STREET_GRAPH, Constants.OSM_DB_PATH);
         staticFileLocation("/page");
         /* Allow for all origin requests (since this is not an authenticated server, we do not
          * care about CSRF).  */
@@ -42,4 +48,55 @@ public class MapServerInitializer {
 
 
     }
+
+    /**
+     * Loads the graph for the OSM file at OSMPATH from the binary snapshot
+     * next to it, if that is at least as new as the OSM file and can be read.
+     * Otherwise parses the OSM file and writes the snapshot for the next
+     * start.
+     */
+    private static AugmentedStreetMapGraph loadGraph(String osmPath) {
+        File osm = new File(osmPath);
+        File snapshot = new File(osmPath + StreetMapGraph.SNAPSHOT_SUFFIX);
+        if (snapshot.exists() && snapshot.lastModified() >= osm.lastModified()) {
+            try {
+                return new AugmentedStreetMapGraph(snapshot.getPath());
+            } catch (UncheckedIOException e) {
+                // Damaged; treat it as stale and replace it from the XML.
+                e.printStackTrace();
+            }
+        }
+
+        AugmentedStreetMapGraph graph = new AugmentedStreetMapGraph(osmPath);
+        try {
+            graph.writeSnapshot(snapshot.getPath());
+        } catch (IOException e) {
+            // The server still runs; it will parse the XML again next time.
+            e.printStackTrace();
+        }
+        return graph;
+    }
+
+    /**
+     * Gives GRAPH the contraction hierarchy stored next to the OSM file at
+     * OSMPATH, if that is at least as new as the OSM file, can be read and
+     * was built for GRAPH. Otherwise routing falls back to A*. The hierarchy
+     * is never built here, since that takes far longer than a start should;
+     * build it offline with ContractionHierarchy.main.
+     */
+    private static void loadHierarchy(AugmentedStreetMapGraph graph, String osmPath) {
+        File osm = new File(osmPath);
+        File file = new File(osmPath + ContractionHierarchy.HIERARCHY_SUFFIX);
+        if (!file.exists() || file.lastModified() < osm.lastModified()) {
+            System.out.println("No current contraction hierarchy at " + file.getPath()
+                    + "; routing with A*.");
+            return;
+        }
+        try {
+            graph.setHierarchy(ContractionHierarchy.read(graph, file.getPath()));
+        } catch (IOException | IllegalArgumentException e) {
+            // Damaged or built for another graph; route with A* until it is rebuilt.
+            e.printStackTrace();
+        }
+    }
 }
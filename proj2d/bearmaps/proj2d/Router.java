@@ -1,6 +1,7 @@
 package bearmaps.proj2d;
 
 import bearmaps.proj2c.WeirdSolver;
+import bearmaps.proj2c.streetmap.ContractionHierarchy;
 import java.util.List;
 import java.util.Objects;
 import java.util.regex.Matcher;
@@ -12,10 +13,19 @@ import java.util.regex.Pattern;
  */
 public class Router {
 
+    /** The ways shortestPath can search for a route. */
+    public enum Engine {
+        /** A* search over the graph itself. */
+        ASTAR,
+        /** A query on the graph's contraction hierarchy. */
+        CONTRACTION_HIERARCHY
+    }
+
     /**
      * Overloaded method for shortestPath that has flexibility to specify a solver
      * and returns a List of longs representing the shortest path from the node
      * closest to a start location and the node closest to the destination location.
+     * Uses the graph's contraction hierarchy if it has one, and A* otherwise.
      * @param g The graph to use.
      * @param stlon The longitude of the start location.
      * @param stlat The latitude of the start location.
@@ -25,8 +35,27 @@ public class Router {
      */
     public static List<Long> shortestPath(AugmentedStreetMapGraph g, double stlon, double stlat,
                                           double destlon, double destlat) {
+        Engine engine = g.hierarchy() != null ? Engine.CONTRACTION_HIERARCHY : Engine.ASTAR;
+        return shortestPath(g, stlon, stlat, destlon, destlat, engine);
+    }
+
+    /**
+     * As shortestPath above, but searches with the given ENGINE.
+     * @param engine The search to use. CONTRACTION_HIERARCHY needs a graph
+     *               with a hierarchy; see AugmentedStreetMapGraph.setHierarchy.
+     * @return A list of node id's in the order visited on the shortest path.
+     */
+    public static List<Long> shortestPath(AugmentedStreetMapGraph g, double stlon, double stlat,
+                                          double destlon, double destlat, Engine engine) {
         long src = g.closest(stlon, stlat);
         long dest = g.closest(destlon, destlat);
+        if (engine == Engine.CONTRACTION_HIERARCHY) {
+            ContractionHierarchy hierarchy = g.hierarchy();
+            if (hierarchy == null) {
+                throw new IllegalStateException("The graph has no contraction hierarchy.");
+            }
+            return hierarchy.shortestPath(src, dest);
+        }
         return new WeirdSolver<>(g, src, dest, 20).solution();
     }
 
@@ -0,0 +1,236 @@
+package bearmaps.test;
+
+import bearmaps.proj2c.WeightedEdge;
+import bearmaps.proj2c.WeirdSolver;
+import bearmaps.proj2c.streetmap.ContractionHierarchy;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
+import bearmaps.proj2d.AugmentedStreetMapGraph;
+import bearmaps.proj2d.Router;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that contraction hierarchy queries find paths as short as A*'s and
+ * Dijkstra's, and that a hierarchy read back from a file answers the same.
+ */
+public class TestContractionHierarchy {
+    private static final String OSM_DB_PATH_TINY = "../library-fa20/data/proj2d_xml/tiny-clean.osm.xml";
+    private static final long[] TINY_IDS = {11, 22, 41, 46, 55, 63, 66};
+    /** Side of the generated grid graphs, in nodes. */
+    private static final int GRID_SIDE = 30;
+    private static final long GRID_FIRST_ID = 1000;
+
+    /**
+     * Writes an OSM file of a GRID_SIDE by GRID_SIDE grid of streets and
+     * returns its path. Nodes are jittered so that edge weights vary, about a
+     * third of the north-south streets are missing and some blocks have a
+     * diagonal, so that shortest paths twist and contraction has to add many
+     * shortcuts. Every row stays connected, so no node is dropped as
+     * isolated. SEED picks the jitter and the missing streets.
+     */
+    private static String writeGrid(long seed) throws IOException {
+        Random random = new Random(seed);
+        File file = File.createTempFile("grid", ".osm.xml");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("<osm>");
+            for (int r = 0; r < GRID_SIDE; r++) {
+                for (int c = 0; c < GRID_SIDE; c++) {
+                    double lat = 37.8 + 0.001 * (r + 0.6 * (random.nextDouble() - 0.5));
+                    double lon = -122.3 + 0.001 * (c + 0.6 * (random.nextDouble() - 0.5));
+                    out.printf("<node id=\"%d\" lat=\"%.7f\" lon=\"%.7f\"></node>%n",
+                            gridId(r, c), lat, lon);
+                }
+            }
+            int way = 0;
+            for (int r = 0; r < GRID_SIDE; r++) {
+                for (int c = 0; c < GRID_SIDE; c++) {
+                    if (c + 1 < GRID_SIDE) {
+                        printWay(out, way++, gridId(r, c), gridId(r, c + 1));
+                    }
+                    if (r + 1 < GRID_SIDE && random.nextInt(3) != 0) {
+                        printWay(out, way++, gridId(r, c), gridId(r + 1, c));
+                    }
+                    if (r + 1 < GRID_SIDE && c + 1 < GRID_SIDE && random.nextInt(5) == 0) {
+                        printWay(out, way++, gridId(r, c), gridId(r + 1, c + 1));
+                    }
+                }
+            }
+            out.println("</osm>");
+        }
+        return file.getPath();
+    }
+
+    private static long gridId(int r, int c) {
+        return GRID_FIRST_ID + r * GRID_SIDE + c;
+    }
+
+    private static void printWay(PrintWriter out, int id, long from, long to) {
+        out.printf("<way id=\"%d\"><nd ref=\"%d\"/><nd ref=\"%d\"/>"
+                + "<tag k=\"highway\" v=\"residential\"/></way>%n", id, from, to);
+    }
+
+    /** Returns the distances from SOURCE to every node of G it reaches, by
+      * Dijkstra's algorithm on G's own edges. */
+    private static Map<Long, Double> dijkstra(StreetMapGraph g, long source) {
+        Map<Long, Double> dist = new HashMap<>();
+        PriorityQueue<double[]> fringe = new PriorityQueue<>(Comparator.comparingDouble(a -> a[0]));
+        dist.put(source, 0.0);
+        fringe.add(new double[]{0.0, source});
+        while (!fringe.isEmpty()) {
+            double[] entry = fringe.poll();
+            long v = (long) entry[1];
+            if (entry[0] > dist.get(v)) {
+                continue;
+            }
+            for (WeightedEdge<Long> e : g.neighbors(v)) {
+                double newDist = entry[0] + e.weight();
+                if (newDist < dist.getOrDefault(e.to(), Double.POSITIVE_INFINITY)) {
+                    dist.put(e.to(), newDist);
+                    fringe.add(new double[]{newDist, e.to()});
+                }
+            }
+        }
+        return dist;
+    }
+
+    /** Returns the weight of the lightest edge of G from V to W, failing if
+      * there is none. */
+    private static double edgeWeight(StreetMapGraph g, long v, long w) {
+        double weight = Double.POSITIVE_INFINITY;
+        for (WeightedEdge<Long> e : g.neighbors(v)) {
+            if (e.to() == w) {
+                weight = Math.min(weight, e.weight());
+            }
+        }
+        assertTrue("No edge from " + v + " to " + w + ".", weight != Double.POSITIVE_INFINITY);
+        return weight;
+    }
+
+    @Test
+    public void testMatchesAStar() {
+        AugmentedStreetMapGraph g = new AugmentedStreetMapGraph(OSM_DB_PATH_TINY);
+        ContractionHierarchy ch = ContractionHierarchy.build(g);
+        for (long from : TINY_IDS) {
+            for (long to : TINY_IDS) {
+                WeirdSolver<Long> solver = new WeirdSolver<>(g, from, to, 20);
+                List<Long> path = ch.shortestPath(from, to);
+                assertEquals(solver.solution().isEmpty(), path.isEmpty());
+                if (!path.isEmpty()) {
+                    assertEquals(from, (long) path.get(0));
+                    assertEquals(to, (long) path.get(path.size() - 1));
+                    assertEquals(solver.solutionWeight(), ch.distance(from, to), 1e-9);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares distances on a grid, where contraction adds many shortcuts,
+     * against Dijkstra, and checks that every unpacked path is made of
+     * edges of the graph that add up to the distance.
+     */
+    @Test
+    public void testGridMatchesDijkstra() throws IOException {
+        StreetMapGraph g = new StreetMapGraph(writeGrid(61));
+        ContractionHierarchy ch = ContractionHierarchy.build(g);
+        assertTrue(ch.numShortcuts() > GRID_SIDE * GRID_SIDE / 10);
+
+        Random random = new Random(61);
+        int numNodes = GRID_SIDE * GRID_SIDE;
+        for (int i = 0; i < 30; i++) {
+            long from = GRID_FIRST_ID + random.nextInt(numNodes);
+            Map<Long, Double> expected = dijkstra(g, from);
+            for (int j = 0; j < 20; j++) {
+                long to = GRID_FIRST_ID + random.nextInt(numNodes);
+                double distance = ch.distance(from, to);
+                assertEquals(expected.get(to), distance, 1e-9);
+
+                List<Long> path = ch.shortestPath(from, to);
+                assertEquals(from, (long) path.get(0));
+                assertEquals(to, (long) path.get(path.size() - 1));
+                double length = 0.0;
+                for (int k = 0; k + 1 < path.size(); k++) {
+                    length += edgeWeight(g, path.get(k), path.get(k + 1));
+                }
+                assertEquals(distance, length, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        AugmentedStreetMapGraph g = new AugmentedStreetMapGraph(OSM_DB_PATH_TINY);
+        ContractionHierarchy built = ContractionHierarchy.build(g);
+        File file = File.createTempFile("graph", ContractionHierarchy.HIERARCHY_SUFFIX);
+        file.deleteOnExit();
+        built.write(file.getPath());
+        ContractionHierarchy read = ContractionHierarchy.read(g, file.getPath());
+
+        assertEquals(built.numShortcuts(), read.numShortcuts());
+        for (long from : TINY_IDS) {
+            for (long to : TINY_IDS) {
+                assertEquals(built.shortestPath(from, to), read.shortestPath(from, to));
+            }
+        }
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        AugmentedStreetMapGraph g = new AugmentedStreetMapGraph(OSM_DB_PATH_TINY);
+        File file = File.createTempFile("graph", ContractionHierarchy.HIERARCHY_SUFFIX);
+        file.deleteOnExit();
+        ContractionHierarchy.build(g).write(file.getPath());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        try {
+            ContractionHierarchy.read(g, file.getPath());
+            fail("Read a truncated hierarchy.");
+        } catch (IOException e) {
+            // Expected.
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOtherGraph() throws IOException {
+        File file = File.createTempFile("grid", ContractionHierarchy.HIERARCHY_SUFFIX);
+        file.deleteOnExit();
+        ContractionHierarchy.build(new StreetMapGraph(writeGrid(1))).write(file.getPath());
+        ContractionHierarchy.read(new StreetMapGraph(writeGrid(2)), file.getPath());
+    }
+
+    @Test
+    public void testRouterEngine() {
+        AugmentedStreetMapGraph g = new AugmentedStreetMapGraph(OSM_DB_PATH_TINY);
+        List<Long> astar = Router.shortestPath(g, 0.2, 38.2, 0.6, 38.6);
+        g.setHierarchy(ContractionHierarchy.build(g));
+        assertEquals(astar, Router.shortestPath(g, 0.2, 38.2, 0.6, 38.6,
+                Router.Engine.CONTRACTION_HIERARCHY));
+        assertEquals(astar, Router.shortestPath(g, 0.2, 38.2, 0.6, 38.6));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoHierarchy() {
+        AugmentedStreetMapGraph g = new AugmentedStreetMapGraph(OSM_DB_PATH_TINY);
+        Router.shortestPath(g, 0.2, 38.2, 0.6, 38.6, Router.Engine.CONTRACTION_HIERARCHY);
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", TestContractionHierarchy.class);
+    }
+}
@@ -0,0 +1,113 @@
+package bearmaps.test;
+
+import bearmaps.proj2c.WeightedEdge;
+import bearmaps.proj2c.streetmap.GraphBuildingHandler;
+import bearmaps.proj2c.streetmap.GraphIngest;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that GraphIngest builds the same graph as the original
+ * GraphBuildingHandler: the same nodes, coordinates and names, and the same
+ * edges with the same weights and names.
+ */
+public class TestGraphIngest {
+    private static final String OSM_DB_PATH_TINY = "../library-fa20/data/proj2d_xml/tiny-clean.osm.xml";
+    private static final long[] TINY_IDS = {11, 22, 41, 46, 55, 63, 66};
+
+    /** Nodes 1 to 5 survive cleaning; 6 and 7 have no allowed ways or names. */
+    private static final long[] EDGE_CASE_IDS = {1, 2, 3, 4, 5};
+
+    /**
+     * Writes a small OSM file with the cases the parsers must agree on: a
+     * repeated node id, a named node with no ways, an unnamed way, a way
+     * through a node that does not exist, a footway, and a way whose name tag
+     * comes before its highway tag.
+     */
+    private static String writeEdgeCases() throws Exception {
+        File file = File.createTempFile("edges", ".osm.xml");
+        file.deleteOnExit();
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println("<osm>");
+            out.println("<node id=\"1\" lat=\"37.80\" lon=\"-122.30\"><tag k=\"name\" v=\"Start\"/></node>");
+            out.println("<node id=\"2\" lat=\"37.81\" lon=\"-122.30\"></node>");
+            out.println("<node id=\"3\" lat=\"37.81\" lon=\"-122.31\"></node>");
+            out.println("<node id=\"4\" lat=\"37.82\" lon=\"-122.31\"></node>");
+            out.println("<node id=\"2\" lat=\"38.00\" lon=\"-121.00\"><tag k=\"name\" v=\"Again\"/></node>");
+            out.println("<node id=\"5\" lat=\"37.83\" lon=\"-122.32\"><tag k=\"name\" v=\"Cafe\"/></node>");
+            out.println("<node id=\"6\" lat=\"37.84\" lon=\"-122.33\"></node>");
+            out.println("<node id=\"7\" lat=\"37.85\" lon=\"-122.34\"></node>");
+            out.println("<way id=\"10\"><nd ref=\"1\"/><nd ref=\"2\"/><nd ref=\"3\"/>"
+                    + "<tag k=\"highway\" v=\"residential\"/><tag k=\"name\" v=\"Main St\"/></way>");
+            out.println("<way id=\"11\"><nd ref=\"3\"/><nd ref=\"4\"/>"
+                    + "<tag k=\"highway\" v=\"primary\"/></way>");
+            out.println("<way id=\"12\"><nd ref=\"4\"/><nd ref=\"99\"/><nd ref=\"1\"/>"
+                    + "<tag k=\"highway\" v=\"tertiary\"/><tag k=\"name\" v=\"Gap Rd\"/></way>");
+            out.println("<way id=\"13\"><nd ref=\"4\"/><nd ref=\"7\"/>"
+                    + "<tag k=\"highway\" v=\"footway\"/><tag k=\"name\" v=\"Path\"/></way>");
+            out.println("<way id=\"14\"><nd ref=\"1\"/><nd ref=\"3\"/>"
+                    + "<tag k=\"name\" v=\"Late Ave\"/><tag k=\"highway\" v=\"secondary\"/></way>");
+            out.println("</osm>");
+        }
+        return file.getPath();
+    }
+
+    /** Checks that ACTUAL has EXPECTED's vertices, and that each of IDS has the
+      * same coordinates, name and outgoing edges in both. */
+    private static void assertSameGraph(StreetMapGraph expected, StreetMapGraph actual, long[] ids) {
+        assertEquals(expected, actual);
+        Comparator<WeightedEdge<Long>> byTarget = Comparator.comparing(WeightedEdge::to);
+        for (long id : ids) {
+            assertEquals(expected.lat(id), actual.lat(id), 0.0);
+            assertEquals(expected.lon(id), actual.lon(id), 0.0);
+            assertEquals(expected.name(id), actual.name(id));
+
+            List<WeightedEdge<Long>> expectedEdges = expected.neighbors(id);
+            List<WeightedEdge<Long>> actualEdges = actual.neighbors(id);
+            expectedEdges.sort(byTarget);
+            actualEdges.sort(byTarget);
+            assertEquals(expectedEdges.size(), actualEdges.size());
+            for (int i = 0; i < expectedEdges.size(); i++) {
+                assertEquals(expectedEdges.get(i).from(), actualEdges.get(i).from());
+                assertEquals(expectedEdges.get(i).to(), actualEdges.get(i).to());
+                assertEquals(expectedEdges.get(i).weight(), actualEdges.get(i).weight(), 0.0);
+                assertEquals(expectedEdges.get(i).getName(), actualEdges.get(i).getName());
+            }
+        }
+    }
+
+    @Test
+    public void testTinyMatchesHandler() throws Exception {
+        StreetMapGraph fromHandler = GraphBuildingHandler.parse(OSM_DB_PATH_TINY);
+        StreetMapGraph fromIngest = new GraphIngest().ingest(OSM_DB_PATH_TINY);
+        assertSameGraph(fromHandler, fromIngest, TINY_IDS);
+    }
+
+    @Test
+    public void testEdgeCasesMatchHandler() throws Exception {
+        String osm = writeEdgeCases();
+        StreetMapGraph fromHandler = GraphBuildingHandler.parse(osm);
+        StreetMapGraph fromIngest = new GraphIngest().ingest(osm);
+        assertSameGraph(fromHandler, fromIngest, EDGE_CASE_IDS);
+
+        // the first of two nodes with one id wins, so node 2 has no name
+        assertEquals("Start", fromIngest.name(1));
+        assertNull(fromIngest.name(2));
+        assertEquals(37.81, fromIngest.lat(2), 0.0);
+        // only way 11 reaches node 4: way 12's refs to node 99 and way 13 are dropped
+        assertEquals(1, fromIngest.neighbors(4L).size());
+        assertEquals(0, fromIngest.neighbors(5L).size());
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", TestGraphIngest.class);
+    }
+}
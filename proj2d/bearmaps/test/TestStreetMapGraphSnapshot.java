@@ -0,0 +1,168 @@
+package bearmaps.test;
+
+import bearmaps.proj2c.WeightedEdge;
+import bearmaps.proj2c.streetmap.MappedStreetMapGraph;
+import bearmaps.proj2c.streetmap.StreetMapGraph;
+import bearmaps.proj2d.AugmentedStreetMapGraph;
+import bearmaps.proj2d.Router;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that a graph read back from a binary snapshot matches the graph
+ * parsed from the OSM XML it was written from.
+ */
+public class TestStreetMapGraphSnapshot {
+    private static final String OSM_DB_PATH_TINY = "../library-fa20/data/proj2d_xml/tiny-clean.osm.xml";
+    private static final long[] TINY_IDS = {11, 22, 41, 46, 55, 63, 66};
+
+    /** Writes the graph in OSMPATH to a temporary snapshot and returns its path. */
+    private static String writeSnapshot(String osmPath) throws IOException {
+        File snapshot = File.createTempFile("graph", StreetMapGraph.SNAPSHOT_SUFFIX);
+        snapshot.deleteOnExit();
+        new StreetMapGraph(osmPath).writeSnapshot(snapshot.getPath());
+        return snapshot.getPath();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        StreetMapGraph fromXML = new StreetMapGraph(OSM_DB_PATH_TINY);
+        StreetMapGraph fromSnapshot = new StreetMapGraph(writeSnapshot(OSM_DB_PATH_TINY));
+
+        assertEquals(fromXML, fromSnapshot);
+        Comparator<WeightedEdge<Long>> byTarget = Comparator.comparing(WeightedEdge::to);
+        for (long id : TINY_IDS) {
+            assertEquals(fromXML.lat(id), fromSnapshot.lat(id), 0.0);
+            assertEquals(fromXML.lon(id), fromSnapshot.lon(id), 0.0);
+            assertEquals(fromXML.name(id), fromSnapshot.name(id));
+
+            List<WeightedEdge<Long>> expected = fromXML.neighbors(id);
+            List<WeightedEdge<Long>> actual = fromSnapshot.neighbors(id);
+            expected.sort(byTarget);
+            actual.sort(byTarget);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).to(), actual.get(i).to());
+                assertEquals(expected.get(i).weight(), actual.get(i).weight(), 0.0);
+                assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            }
+        }
+    }
+
+    @Test
+    public void testTruncatedSnapshot() throws IOException {
+        String snapshot = writeSnapshot(OSM_DB_PATH_TINY);
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+            file.setLength(file.length() / 2);
+        }
+        try {
+            new StreetMapGraph(snapshot);
+            fail("Read a truncated snapshot.");
+        } catch (UncheckedIOException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testMappedGraph() throws IOException {
+        StreetMapGraph fromXML = new StreetMapGraph(OSM_DB_PATH_TINY);
+        MappedStreetMapGraph mapped = new MappedStreetMapGraph(writeSnapshot(OSM_DB_PATH_TINY));
+
+        Comparator<WeightedEdge<Long>> byTarget = Comparator.comparing(WeightedEdge::to);
+        for (long id : TINY_IDS) {
+            assertEquals(fromXML.lat(id), mapped.lat(id), 0.0);
+            assertEquals(fromXML.lon(id), mapped.lon(id), 0.0);
+            assertEquals(fromXML.name(id), mapped.name(id));
+            assertEquals(id, mapped.idAt(mapped.slotOf(id)));
+
+            List<WeightedEdge<Long>> expected = fromXML.neighbors(id);
+            List<WeightedEdge<Long>> actual = mapped.neighbors(id);
+            expected.sort(byTarget);
+            actual.sort(byTarget);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).to(), actual.get(i).to());
+                assertEquals(expected.get(i).weight(), actual.get(i).weight(), 0.0);
+                assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            }
+            for (long goal : TINY_IDS) {
+                assertEquals(fromXML.estimatedDistanceToGoal(id, goal),
+                        mapped.estimatedDistanceToGoal(id, goal), 0.0);
+            }
+        }
+        assertEquals(-1, mapped.slotOf(12345));
+    }
+
+    @Test
+    public void testMappedGraphDamaged() throws IOException {
+        String snapshot = writeSnapshot(OSM_DB_PATH_TINY);
+        int n, m;
+        try (RandomAccessFile file = new RandomAccessFile(snapshot, "r")) {
+            file.seek(4);
+            n = file.readInt();
+            m = file.readInt();
+        }
+        long offsetsAt = 12 + 24L * n;
+        long targetsAt = offsetsAt + 4L * (n + 1);
+        long nodeNamesAt = targetsAt + 12L * m;
+        // an out-of-range target, a decreasing offset and a bad name index
+        long[] positions = {targetsAt, offsetsAt + 4, nodeNamesAt};
+        int[] values = {n, -1, 1 << 20};
+
+        byte[] original = Files.readAllBytes(new File(snapshot).toPath());
+        for (int i = 0; i < positions.length; i++) {
+            try (RandomAccessFile file = new RandomAccessFile(snapshot, "rw")) {
+                file.write(original);
+                file.seek(positions[i]);
+                file.writeInt(values[i]);
+            }
+            try {
+                new MappedStreetMapGraph(snapshot);
+                fail("Mapped a damaged snapshot.");
+            } catch (IOException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void testMappedGraphUnknownId() throws IOException {
+        MappedStreetMapGraph mapped = new MappedStreetMapGraph(writeSnapshot(OSM_DB_PATH_TINY));
+        try {
+            mapped.neighbors(12345L);
+            fail("Found neighbors of an unknown id.");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+        try {
+            mapped.estimatedDistanceToGoal(TINY_IDS[0], 12345L);
+            fail("Estimated a distance to an unknown id.");
+        } catch (IllegalArgumentException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testRouteOnSnapshot() throws IOException {
+        AugmentedStreetMapGraph fromXML = new AugmentedStreetMapGraph(OSM_DB_PATH_TINY);
+        AugmentedStreetMapGraph fromSnapshot =
+                new AugmentedStreetMapGraph(writeSnapshot(OSM_DB_PATH_TINY));
+
+        assertEquals(Router.shortestPath(fromXML, 0.4, 38.1, 0.4, 38.6),
+                Router.shortestPath(fromSnapshot, 0.4, 38.1, 0.4, 38.6));
+    }
+
+    public static void main(String[] args) {
+        jh61b.junit.TestRunner.runTests("all", TestStreetMapGraphSnapshot.class);
+    }
+}